@@ -0,0 +1,91 @@
+package com.chatapp.benchmark;
+
+import com.chatapp.model.UserAccount;
+import com.chatapp.repository.UserAccountRepository;
+import com.chatapp.repository.UserAccountSchemaInitializer;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// a throwaway Postgres with the real entities, repositories and schema statements, but none of the web or Firebase
+// wiring, so the measurements cover exactly the queries the service runs
+public final class BenchmarkDatabase implements AutoCloseable {
+
+  private static final String SEED_SQL = "insert into user_account (uid, email, username, first_name, last_name,"
+      + " address, city, state, country, zip_code, status, last_activity, phone_number, version)"
+      + " select 'uid-' || n, 'user' || n || '@example.com', 'user_' || md5(n::text), 'First' || n, 'Last' || n,"
+      + " n || ' Main Street', 'Springfield', 'IL', 'US', '62701', 'offline', now(), '+1555' || n, 0"
+      + " from generate_series(?, ?) n";
+
+  private final PostgreSQLContainer<?> container;
+  private final ConfigurableApplicationContext context;
+
+  private BenchmarkDatabase(PostgreSQLContainer<?> container, ConfigurableApplicationContext context) {
+    this.container = container;
+    this.context = context;
+  }
+
+  public static BenchmarkDatabase start(String... extraArgs) throws MetaDataAccessException {
+    PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:13-alpine");
+    container.start();
+    List<String> args = new ArrayList<>(List.of(
+        "--spring.main.web-application-type=none",
+        "--spring.main.banner-mode=off",
+        "--spring.datasource.url=" + container.getJdbcUrl(),
+        "--spring.datasource.username=" + container.getUsername(),
+        "--spring.datasource.password=" + container.getPassword(),
+        "--spring.jpa.database-platform=org.hibernate.dialect.PostgreSQL10Dialect",
+        "--spring.sql.init.mode=never",
+        "--logging.level.root=warn"));
+    args.addAll(Arrays.asList(extraArgs));
+    ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(Config.class).run(args.toArray(new String[0]));
+    new UserAccountSchemaInitializer(context.getBean(DataSource.class)).initialize();
+    return new BenchmarkDatabase(container, context);
+  }
+
+  public <T> T getBean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  public UserAccountRepository repository() {
+    return getBean(UserAccountRepository.class);
+  }
+
+  public JdbcTemplate jdbcTemplate() {
+    return new JdbcTemplate(getBean(DataSource.class));
+  }
+
+  // accounts uid-1 .. uid-<rows>, with usernames spread like hashes so substring searches hit a few rows each
+  public void seed(int rows) {
+    JdbcTemplate jdbcTemplate = jdbcTemplate();
+    for (int from = 1; from <= rows; from += 100_000) {
+      jdbcTemplate.update(SEED_SQL, from, Math.min(rows, from + 99_999));
+    }
+    jdbcTemplate.execute("analyze user_account");
+  }
+
+  @Override
+  public void close() {
+    context.close();
+    container.stop();
+  }
+
+  @SpringBootConfiguration
+  @EnableAutoConfiguration
+  @EntityScan(basePackageClasses = UserAccount.class)
+  @EnableJpaRepositories(basePackageClasses = UserAccountRepository.class)
+  static class Config {
+  }
+}
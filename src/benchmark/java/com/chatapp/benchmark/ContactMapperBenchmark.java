@@ -0,0 +1,60 @@
+package com.chatapp.benchmark;
+
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.mapper.UserAccountMapper;
+import com.chatapp.model.UserAccount;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+// one UserAccount to ContactDTO conversion; no database involved
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ContactMapperBenchmark {
+
+  private final UserAccount userAccount = UserAccount.builder()
+      .uid("uid-1")
+      .email("john@example.com")
+      .username("john")
+      .firstName("John")
+      .lastName("Doe")
+      .address("1 Main Street")
+      .city("Springfield")
+      .state("IL")
+      .country("US")
+      .zipCode("62701")
+      .status("online")
+      .lastActivity(OffsetDateTime.parse("2026-01-01T00:00:00Z"))
+      .phoneNumber("+15550001")
+      .photoUrl("https://example.com/photos/1/original")
+      .avatarUrl("https://example.com/photos/1/128.jpg")
+      .version(3L)
+      .build();
+
+  private final ModelMapperContactConverter modelMapper = new ModelMapperContactConverter();
+  private final UserAccountMapper generatedMapper = Mappers.getMapper(UserAccountMapper.class);
+
+  @Benchmark
+  public ContactDTO modelMapper() {
+    return modelMapper.convertToDto(userAccount);
+  }
+
+  @Benchmark
+  public ContactDTO generatedMapper() {
+    return generatedMapper.toContact(userAccount);
+  }
+}
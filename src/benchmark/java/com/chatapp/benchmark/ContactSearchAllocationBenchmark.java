@@ -0,0 +1,83 @@
+package com.chatapp.benchmark;
+
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.model.UserAccount;
+import com.chatapp.repository.UserAccountRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// allocation per search page; run with -prof gc and compare gc.alloc.rate.norm between the two
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ContactSearchAllocationBenchmark {
+
+  private static final int ROWS = 100_000;
+
+  private BenchmarkDatabase database;
+  private UserAccountRepository repository;
+  private EntityManagerFactory entityManagerFactory;
+  private ModelMapperContactConverter converter;
+  private int next;
+
+  @Setup
+  public void setUp() throws MetaDataAccessException {
+    database = BenchmarkDatabase.start();
+    database.seed(ROWS);
+    repository = database.repository();
+    entityManagerFactory = database.getBean(EntityManagerFactory.class);
+    converter = new ModelMapperContactConverter();
+  }
+
+  @TearDown
+  public void tearDown() {
+    database.close();
+  }
+
+  // managed entities with every column, each with its loaded-state snapshot, then a reflective copy
+  @Benchmark
+  public List<ContactDTO> hydrateAndMap() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      List<UserAccount> userAccounts = entityManager
+          .createQuery("select u from UserAccount u where lower(u.username) like :pattern order by u.username",
+              UserAccount.class)
+          .setParameter("pattern", "%" + nextQuery() + "%")
+          .setMaxResults(20)
+          .getResultList();
+      return userAccounts.stream().map(converter::convertToDto).collect(Collectors.toList());
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  @Benchmark
+  public List<ContactDTO> project() {
+    return repository.searchContacts("%" + nextQuery() + "%", "", PageRequest.of(0, 20));
+  }
+
+  private String nextQuery() {
+    next = (next + 1) & 0xfff;
+    return String.format("%03x", next);
+  }
+}
@@ -0,0 +1,27 @@
+package com.chatapp.benchmark;
+
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.model.UserAccount;
+import org.modelmapper.ModelMapper;
+
+// UserAccountController#convertToDto as it was before the generated mapper, the baseline for the benchmarks
+final class ModelMapperContactConverter {
+
+  private final ModelMapper modelMapper = new ModelMapper();
+
+  ModelMapperContactConverter() {
+    modelMapper.getConfiguration().setAmbiguityIgnored(true);
+  }
+
+  ContactDTO convertToDto(UserAccount userAccount) {
+    ContactDTO contactDTO = modelMapper.map(userAccount, ContactDTO.class);
+
+    String fullName = userAccount.getFirstName() == null || userAccount.getLastName() == null
+        ? "" : userAccount.getFirstName() + " " + userAccount.getLastName();
+
+    contactDTO.setName(fullName);
+    contactDTO.setAvatar(userAccount.getPhotoUrl());
+    contactDTO.setId(userAccount.getUid());
+    return contactDTO;
+  }
+}
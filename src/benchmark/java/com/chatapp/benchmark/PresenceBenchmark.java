@@ -0,0 +1,125 @@
+package com.chatapp.benchmark;
+
+import com.chatapp.cache.InMemoryCacheInvalidationBus;
+import com.chatapp.model.UserAccount;
+import com.chatapp.presence.PresenceBuffer;
+import com.chatapp.repository.UserAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 100k simulated clients heartbeating; the in-memory path on its own, and a full wave written to Postgres
+// through the buffer's batched flush versus one full-row update per heartbeat
+@Fork(1)
+public class PresenceBenchmark {
+
+  static final int CLIENTS = 100_000;
+
+  @State(Scope.Benchmark)
+  public static class InMemory {
+    PresenceBuffer presenceBuffer;
+    String[] uids;
+
+    @Setup
+    public void setUp() {
+      presenceBuffer = newPresenceBuffer(new JdbcTemplate());
+      uids = uids();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Database {
+    BenchmarkDatabase database;
+    UserAccountRepository repository;
+    PresenceBuffer presenceBuffer;
+    String[] uids;
+    List<UserAccount> userAccounts;
+
+    @Setup
+    public void setUp() throws MetaDataAccessException {
+      database = BenchmarkDatabase.start();
+      database.seed(CLIENTS);
+      repository = database.repository();
+      presenceBuffer = newPresenceBuffer(database.jdbcTemplate());
+      uids = uids();
+      userAccounts = repository.findAll();
+    }
+
+    @TearDown
+    public void tearDown() {
+      database.close();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Threads(8)
+  @Warmup(iterations = 3, time = 5)
+  @Measurement(iterations = 5, time = 5)
+  public void heartbeat(InMemory state) {
+    state.presenceBuffer.heartbeat(state.uids[ThreadLocalRandom.current().nextInt(CLIENTS)], "online");
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @OperationsPerInvocation(CLIENTS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 3)
+  public void bufferedFlush(Database state) {
+    String status = ThreadLocalRandom.current().nextBoolean() ? "online" : "away";
+    for (String uid : state.uids) {
+      state.presenceBuffer.heartbeat(uid, status);
+    }
+    state.presenceBuffer.flush();
+  }
+
+  // what a heartbeat through updateUserAccount would cost: one statement rewriting the whole row per client
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @OperationsPerInvocation(CLIENTS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 3)
+  public void fullRowUpdates(Database state) {
+    String status = ThreadLocalRandom.current().nextBoolean() ? "online" : "away";
+    for (UserAccount userAccount : state.userAccounts) {
+      userAccount.setStatus(status);
+      userAccount.setLastActivity(OffsetDateTime.now());
+      state.repository.updateUserAccount(userAccount.getUid(), userAccount);
+    }
+  }
+
+  private static PresenceBuffer newPresenceBuffer(JdbcTemplate jdbcTemplate) {
+    return new PresenceBuffer(jdbcTemplate, new InMemoryCacheInvalidationBus(), event -> {
+    }, new SimpleMeterRegistry(), 500, Duration.ofMinutes(5));
+  }
+
+  private static String[] uids() {
+    String[] uids = new String[CLIENTS];
+    for (int i = 0; i < CLIENTS; i++) {
+      uids[i] = "uid-" + (i + 1);
+    }
+    return uids;
+  }
+}
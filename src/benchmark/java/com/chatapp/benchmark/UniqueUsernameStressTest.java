@@ -0,0 +1,102 @@
+package com.chatapp.benchmark;
+
+import com.chatapp.advice.UserAccountControllerAdvice;
+import com.chatapp.repository.UserAccountRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// many accounts claiming the same name at once; exactly one may win, every other one must get the 422 message
+// run with mvn -Pbenchmark test -Dtest=UniqueUsernameStressTest
+@Testcontainers(disabledWithoutDocker = true)
+class UniqueUsernameStressTest {
+
+  private static final int THREADS = 32;
+  private static final int ROUNDS = 50;
+
+  private static BenchmarkDatabase database;
+  private static UserAccountRepository repository;
+  private final UserAccountControllerAdvice advice = new UserAccountControllerAdvice();
+
+  @BeforeAll
+  static void startDatabase() throws MetaDataAccessException {
+    database = BenchmarkDatabase.start("--spring.datasource.hikari.maximum-pool-size=" + THREADS);
+    database.seed(THREADS);
+    repository = database.repository();
+  }
+
+  @AfterAll
+  static void stopDatabase() {
+    database.close();
+  }
+
+  @Test
+  @DisplayName("Should let exactly one of many concurrent requests take a username")
+  void Should_let_one_request_take_a_username() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      String username = "contested_" + round;
+      hammer(username, repository::updateUsername, "Username " + username + " has been taken. Try Another.");
+      assertEquals(List.of(username), repository.findExistingUsernames(List.of(username)));
+    }
+  }
+
+  @Test
+  @DisplayName("Should let exactly one of many concurrent requests take an email")
+  void Should_let_one_request_take_an_email() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      String email = "contested" + round + "@example.com";
+      hammer(email, repository::updateEmail, "Email " + email + " has been taken. Try another.");
+      assertEquals(List.of(email), repository.findExistingEmails(List.of(email)));
+    }
+  }
+
+  private void hammer(String value, BiConsumer<String, String> update, String expectedMessage) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 1; i <= THREADS; i++) {
+        String uid = "uid-" + i;
+        Callable<String> request = () -> {
+          start.await();
+          try {
+            update.accept(uid, value);
+            return null;
+          } catch (DataIntegrityViolationException e) {
+            return advice.duplicateKeyHandler(e);
+          }
+        };
+        results.add(executor.submit(request));
+      }
+      start.countDown();
+
+      int succeeded = 0;
+      for (Future<String> result : results) {
+        String message = result.get();
+        if (message == null) {
+          succeeded++;
+        } else {
+          assertEquals(expectedMessage, message);
+        }
+      }
+      assertEquals(1, succeeded);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.chatapp.benchmark;
+
+import com.chatapp.model.UserAccount;
+import com.chatapp.model.UserPersonalInfo;
+import com.chatapp.repository.UserAccountRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// SQL statements per profile update, the way each endpoint used to run them and the way it runs them now;
+// run with mvn -Pbenchmark test -Dtest=UpdateStatementCountTest
+@Testcontainers(disabledWithoutDocker = true)
+class UpdateStatementCountTest {
+
+  private static BenchmarkDatabase database;
+  private static UserAccountRepository repository;
+  private static TransactionTemplate transaction;
+  private static Statistics statistics;
+
+  @BeforeAll
+  static void startDatabase() throws MetaDataAccessException {
+    database = BenchmarkDatabase.start("--spring.jpa.properties.hibernate.generate_statistics=true");
+    database.seed(10);
+    repository = database.repository();
+    transaction = new TransactionTemplate(database.getBean(PlatformTransactionManager.class));
+    statistics = database.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @AfterAll
+  static void stopDatabase() {
+    database.close();
+  }
+
+  @Test
+  @DisplayName("Should change the email in one statement")
+  void Should_update_email_in_one_statement() {
+    long before = statements(() -> {
+      repository.existsUserAccountByEmail("changed1@example.com");
+      UserAccount userAccount = repository.findById("uid-1").orElseThrow();
+      // merging the rebuilt, detached copy selects the row again before updating it
+      repository.save(userAccount.toBuilder().email("changed1@example.com").build());
+    });
+    long after = statements(() -> repository.updateEmail("uid-2", "changed2@example.com"));
+
+    report("updateEmail", before, after);
+    assertTrue(before > after);
+    assertEquals(1, after);
+  }
+
+  @Test
+  @DisplayName("Should change the username in one statement")
+  void Should_update_username_in_one_statement() {
+    long before = statements(() -> {
+      repository.existsUserAccountByUsername("changed_3");
+      UserAccount userAccount = repository.findById("uid-3").orElseThrow();
+      repository.save(userAccount.toBuilder().username("changed_3").build());
+    });
+    long after = statements(() -> repository.updateUsername("uid-4", "changed_4"));
+
+    report("updateUsername", before, after);
+    assertTrue(before > after);
+    assertEquals(1, after);
+  }
+
+  @Test
+  @DisplayName("Should change the personal info in one statement")
+  void Should_update_personal_info_in_one_statement() {
+    UserPersonalInfo info = new UserPersonalInfo("Jane", "Roe", "2 Side Street", "Shelbyville", "IL", "US", "62565");
+    long before = statements(() -> {
+      UserAccount userAccount = repository.findById("uid-5").orElseThrow();
+      repository.save(userAccount.toBuilder()
+          .firstName(info.firstName)
+          .lastName(info.lastName)
+          .address(info.address)
+          .city(info.city)
+          .state(info.state)
+          .country(info.country)
+          .zipCode(info.zipCode)
+          .build());
+    });
+    long after = statements(() -> repository.updatePersonalInfo("uid-6", info));
+
+    report("updateUserPersonalInfo", before, after);
+    assertTrue(before > after);
+    assertEquals(1, after);
+  }
+
+  @Test
+  @DisplayName("Should point the account at a new photo with the lock and one update")
+  void Should_update_photo_with_lock_and_one_statement() {
+    long before = statements(() -> {
+      UserAccount userAccount = repository.findById("uid-7").orElseThrow();
+      repository.save(userAccount.toBuilder().photoUrl("https://example.com/photos/7").build());
+    });
+    long after = statements(() -> transaction.executeWithoutResult(status -> {
+      repository.lockPhotoKey("photos/sha256/07");
+      repository.updatePhotoPending("uid-8", "photos/sha256/07");
+    }));
+
+    report("updateProfilePhoto", before, after);
+    assertTrue(before > after);
+    assertEquals(2, after);
+  }
+
+  private static long statements(Runnable update) {
+    long preparedBefore = statistics.getPrepareStatementCount();
+    update.run();
+    return statistics.getPrepareStatementCount() - preparedBefore;
+  }
+
+  private static void report(String endpoint, long before, long after) {
+    System.out.printf("%-24s before: %d statements, after: %d statements%n", endpoint, before, after);
+  }
+}
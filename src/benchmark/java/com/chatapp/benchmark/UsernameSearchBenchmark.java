@@ -0,0 +1,78 @@
+package com.chatapp.benchmark;
+
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.repository.UserAccountRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// /user/search latency before and after the pg_trgm index, at growing table sizes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class UsernameSearchBenchmark {
+
+  // what Spring Data derived for searchByUsernameContainingIgnoreCase with a sorted page of 20
+  private static final String CONTAINING_IGNORE_CASE_SQL = "select * from user_account"
+      + " where upper(username) like upper(?) escape '\\' order by username limit 20";
+  private static final String CONTAINING_IGNORE_CASE_COUNT_SQL =
+      "select count(*) from user_account where upper(username) like upper(?) escape '\\'";
+
+  @Param({"10000", "100000", "1000000"})
+  int rows;
+
+  private BenchmarkDatabase database;
+  private UserAccountRepository repository;
+  private JdbcTemplate jdbcTemplate;
+  private int next;
+
+  @Setup
+  public void setUp() throws MetaDataAccessException {
+    database = BenchmarkDatabase.start();
+    database.seed(rows);
+    repository = database.repository();
+    jdbcTemplate = database.jdbcTemplate();
+  }
+
+  @TearDown
+  public void tearDown() {
+    database.close();
+  }
+
+  @Benchmark
+  public List<Map<String, Object>> containingIgnoreCase() {
+    String pattern = "%" + nextQuery() + "%";
+    jdbcTemplate.queryForObject(CONTAINING_IGNORE_CASE_COUNT_SQL, Long.class, pattern);
+    return jdbcTemplate.queryForList(CONTAINING_IGNORE_CASE_SQL, pattern);
+  }
+
+  @Benchmark
+  public List<ContactDTO> trigramIndex() {
+    return repository.searchContacts("%" + nextQuery() + "%", "", PageRequest.of(0, 20));
+  }
+
+  // three hex digits of the hashed usernames, rotating so no single plan or cached page dominates
+  private String nextQuery() {
+    next = (next + 1) & 0xfff;
+    return String.format("%03x", next);
+  }
+}
@@ -1,17 +1,33 @@
 package com.chatapp.advice;
 
+import com.chatapp.exception.BatchLimitExceededException;
+import com.chatapp.exception.BulkAccessNotAllowedException;
 import com.chatapp.exception.EmailExistsException;
+import com.chatapp.exception.InvalidCursorException;
+import com.chatapp.exception.InvalidPhotoException;
+import com.chatapp.exception.InvalidPresenceStatusException;
+import com.chatapp.exception.InvalidTokenException;
+import com.chatapp.exception.InvalidUidsException;
+import com.chatapp.exception.TooManyUploadsException;
+import com.chatapp.exception.UserAccountExistsException;
+import com.chatapp.exception.UserAccountModifiedException;
 import com.chatapp.exception.UserAccountNotFoundException;
 import com.chatapp.exception.UsernameExistsException;
 import com.google.firebase.auth.FirebaseAuthException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 @ControllerAdvice
 public class UserAccountControllerAdvice {
+    private static final Pattern DUPLICATE_KEY = Pattern.compile("Key \\((\\w+)\\)=\\((.*)\\) already exists");
+
     @ResponseBody
     @ExceptionHandler(EmailExistsException.class)
     @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
@@ -26,6 +42,34 @@ public class UserAccountControllerAdvice {
         return e.getMessage();
     }
 
+    @ResponseBody
+    @ExceptionHandler(UserAccountExistsException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    String userAccountExistsHandler(UserAccountExistsException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    String duplicateKeyHandler(DataIntegrityViolationException e) {
+        Matcher matcher = DUPLICATE_KEY.matcher(String.valueOf(e.getMostSpecificCause().getMessage()));
+        if (matcher.find()) {
+            switch (matcher.group(1)) {
+                case "username":
+                    return usernameExistInDatabaseHandler(new UsernameExistsException(matcher.group(2)));
+                case "email":
+                    return emailExistInDatabaseHandler(new EmailExistsException(matcher.group(2)));
+                case "uid":
+                    // two registrations of the same user racing past the existence check
+                    return userAccountExistsHandler(new UserAccountExistsException(matcher.group(2)));
+                default:
+                    break;
+            }
+        }
+        throw e;
+    }
+
     @ResponseBody
     @ExceptionHandler(UserAccountNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
@@ -33,6 +77,62 @@ public class UserAccountControllerAdvice {
         return e.getMessage();
     }
 
+    @ResponseBody
+    @ExceptionHandler(UserAccountModifiedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    String userAccountModifiedHandler(UserAccountModifiedException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(BulkAccessNotAllowedException.class)
+    @ResponseStatus(HttpStatus.FORBIDDEN)
+    String bulkAccessNotAllowedHandler(BulkAccessNotAllowedException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(BatchLimitExceededException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String batchLimitExceededHandler(BatchLimitExceededException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(InvalidUidsException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String invalidUidsHandler(InvalidUidsException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String invalidCursorHandler(InvalidCursorException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(InvalidPresenceStatusException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String invalidPresenceStatusHandler(InvalidPresenceStatusException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(InvalidPhotoException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    String invalidPhotoHandler(InvalidPhotoException e) {
+        return e.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(TooManyUploadsException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    String tooManyUploadsHandler(TooManyUploadsException e) {
+        return e.getMessage();
+    }
+
     @ResponseBody
     @ExceptionHandler(FirebaseAuthException.class)
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
@@ -40,4 +140,11 @@ public class UserAccountControllerAdvice {
         e.printStackTrace();
         return e.getMessage();
     }
+
+    @ResponseBody
+    @ExceptionHandler(InvalidTokenException.class)
+    @ResponseStatus(HttpStatus.UNAUTHORIZED)
+    String invalidToken(InvalidTokenException e) {
+        return e.getMessage();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,286 @@
+package com.chatapp.availability;
+
+import com.chatapp.cache.CacheInvalidationBus;
+import com.chatapp.cache.CacheInvalidationListener;
+import com.chatapp.repository.UserAccountRepository;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+public class AvailabilityIndex {
+
+    static final String USERNAMES_TOPIC = "availability_username";
+    static final String EMAILS_TOPIC = "availability_email";
+
+    private final UserAccountRepository repository;
+    private final CacheInvalidationBus invalidationBus;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final Stats usernameStats;
+    private final Stats emailStats;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    private volatile Filters filters;
+    private volatile Filters building;
+
+    @Autowired
+    public AvailabilityIndex(
+            UserAccountRepository repository,
+            CacheInvalidationBus invalidationBus,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${availability.index.expected-insertions}") long expectedInsertions,
+            @Value("${availability.index.false-positive-probability}") double falsePositiveProbability) {
+        this.repository = repository;
+        this.invalidationBus = invalidationBus;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.usernameStats = new Stats(meterRegistry, "username");
+        this.emailStats = new Stats(meterRegistry, "email");
+        // a miss is only "definitely absent" if every node's writes reach this node's filters
+        invalidationBus.subscribe(USERNAMES_TOPIC, new RemoteAdds(target -> target.usernames));
+        invalidationBus.subscribe(EMAILS_TOPIC, new RemoteAdds(target -> target.emails));
+    }
+
+    public boolean isUsernameTaken(String username, Predicate<String> confirm) {
+        Filters current = filters;
+        return isTaken(username, current == null ? null : current.usernames, confirm, usernameStats);
+    }
+
+    public boolean isEmailTaken(String email, Predicate<String> confirm) {
+        Filters current = filters;
+        return isTaken(email, current == null ? null : current.emails, confirm, emailStats);
+    }
+
+    public Set<String> takenUsernames(
+            Collection<String> usernames, Function<Collection<String>, Collection<String>> confirm) {
+        Filters current = filters;
+        return taken(usernames, current == null ? null : current.usernames, confirm, usernameStats);
+    }
+
+    public Set<String> takenEmails(
+            Collection<String> emails, Function<Collection<String>, Collection<String>> confirm) {
+        Filters current = filters;
+        return taken(emails, current == null ? null : current.emails, confirm, emailStats);
+    }
+
+    public void addUsername(String username) {
+        addUsernames(Collections.singletonList(username));
+    }
+
+    public void addEmail(String email) {
+        addEmails(Collections.singletonList(email));
+    }
+
+    public void addUsernames(Collection<String> usernames) {
+        add(usernames, target -> target.usernames, USERNAMES_TOPIC);
+    }
+
+    public void addEmails(Collection<String> emails) {
+        add(emails, target -> target.emails, EMAILS_TOPIC);
+    }
+
+    // adds land in the new filters from before its snapshot starts until it replaces the current ones, so a row
+    // committed after the snapshot started still reaches them
+    @Scheduled(fixedDelayString = "${availability.index.rebuild-interval}")
+    public synchronized void rebuild() {
+        long startedAt = System.nanoTime();
+        Filters next = new Filters(expectedInsertions, falsePositiveProbability);
+        building = next;
+        try {
+            AtomicLong rows = new AtomicLong();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rowStream = repository.streamUsernamesAndEmails()) {
+                    rowStream.forEach(row -> {
+                        next.usernames.put((String) row[0]);
+                        next.emails.put((String) row[1]);
+                        rows.incrementAndGet();
+                    });
+                }
+            });
+            filters = next;
+            log.info("Rebuilt availability index from {} accounts in {} ms",
+                    rows.get(), (System.nanoTime() - startedAt) / 1_000_000);
+        } finally {
+            building = null;
+        }
+    }
+
+    private void add(Collection<String> values, Function<Filters, BloomFilter<CharSequence>> field, String topic) {
+        List<String> present = values.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        if (present.isEmpty()) {
+            return;
+        }
+        // an add seen before the commit could land in neither a rebuild's snapshot nor its new filters
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addCommitted(present, field, topic);
+                }
+            });
+        } else {
+            addCommitted(present, field, topic);
+        }
+    }
+
+    private void addCommitted(
+            List<String> values, Function<Filters, BloomFilter<CharSequence>> field, String topic) {
+        values.forEach(value -> addLocally(value, field));
+        invalidationBus.publish(topic, values);
+    }
+
+    private void addLocally(String value, Function<Filters, BloomFilter<CharSequence>> field) {
+        Filters next = building;
+        if (next != null) {
+            field.apply(next).put(value);
+        }
+        Filters current = filters;
+        if (current != null) {
+            field.apply(current).put(value);
+        }
+    }
+
+    private void rebuildInBackground() {
+        if (!rebuildPending.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Availability index rebuild failed, keeping the current filters", e);
+            } finally {
+                rebuildPending.set(false);
+            }
+        }, "availability-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static boolean isTaken(
+            String value, BloomFilter<CharSequence> filter, Predicate<String> confirm, Stats stats) {
+        if (filter == null) {
+            return confirm.test(value);
+        }
+        if (!filter.mightContain(value)) {
+            stats.definitelyAbsent.incrementAndGet();
+            return false;
+        }
+        boolean taken = confirm.test(value);
+        (taken ? stats.confirmed : stats.falsePositives).incrementAndGet();
+        return taken;
+    }
+
+    private static Set<String> taken(
+            Collection<String> values,
+            BloomFilter<CharSequence> filter,
+            Function<Collection<String>, Collection<String>> confirm,
+            Stats stats) {
+        List<String> possiblyTaken = new ArrayList<>(values.size());
+        for (String value : new HashSet<>(values)) {
+            if (filter == null || filter.mightContain(value)) {
+                possiblyTaken.add(value);
+            } else {
+                stats.definitelyAbsent.incrementAndGet();
+            }
+        }
+        if (possiblyTaken.isEmpty()) {
+            return new HashSet<>();
+        }
+        Set<String> taken = new HashSet<>(confirm.apply(possiblyTaken));
+        if (filter != null) {
+            stats.confirmed.addAndGet(taken.size());
+            stats.falsePositives.addAndGet(possiblyTaken.size() - taken.size());
+        }
+        return taken;
+    }
+
+    private class RemoteAdds implements CacheInvalidationListener {
+        private final Function<Filters, BloomFilter<CharSequence>> field;
+
+        private RemoteAdds(Function<Filters, BloomFilter<CharSequence>> field) {
+            this.field = field;
+        }
+
+        @Override
+        public void invalidate(String value) {
+            addLocally(value, field);
+        }
+
+        @Override
+        public void invalidateAll() {
+            // adds published while the listener was disconnected are lost, so start over from the table
+            rebuildInBackground();
+        }
+    }
+
+    private static class Filters {
+        private final BloomFilter<CharSequence> usernames;
+        private final BloomFilter<CharSequence> emails;
+
+        private Filters(long expectedInsertions, double falsePositiveProbability) {
+            this.usernames = BloomFilter.create(
+                    Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability);
+            this.emails = BloomFilter.create(
+                    Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability);
+        }
+    }
+
+    private static class Stats {
+        private final AtomicLong definitelyAbsent = new AtomicLong();
+        private final AtomicLong falsePositives = new AtomicLong();
+        private final AtomicLong confirmed = new AtomicLong();
+
+        private Stats(MeterRegistry meterRegistry, String field) {
+            FunctionCounter.builder("availability.index.lookups", definitelyAbsent, AtomicLong::get)
+                    .tags("field", field, "outcome", "definitely_absent")
+                    .register(meterRegistry);
+            FunctionCounter.builder("availability.index.lookups", falsePositives, AtomicLong::get)
+                    .tags("field", field, "outcome", "false_positive")
+                    .register(meterRegistry);
+            FunctionCounter.builder("availability.index.lookups", confirmed, AtomicLong::get)
+                    .tags("field", field, "outcome", "confirmed")
+                    .register(meterRegistry);
+            Gauge.builder("availability.index.false.positive.rate", this, Stats::falsePositiveRate)
+                    .tag("field", field)
+                    .register(meterRegistry);
+        }
+
+        private double falsePositiveRate() {
+            long negatives = definitelyAbsent.get() + falsePositives.get();
+            return negatives == 0 ? 0 : (double) falsePositives.get() / negatives;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.chatapp.availability;
+
+import com.chatapp.repository.UserAccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class UsernameSuggester {
+
+    private static final int CANDIDATES_PER_SUGGESTION = 3;
+    private static final int MAX_ROUNDS = 3;
+    private static final String[] SEPARATORS = {"", "_", "."};
+
+    private final AvailabilityIndex availabilityIndex;
+    private final UserAccountRepository repository;
+
+    @Autowired
+    public UsernameSuggester(AvailabilityIndex availabilityIndex, UserAccountRepository repository) {
+        this.availabilityIndex = availabilityIndex;
+        this.repository = repository;
+    }
+
+    public Map<String, List<String>> suggest(List<String> usernames, int count) {
+        Map<String, List<String>> suggestions = new LinkedHashMap<>();
+        usernames.forEach(username -> suggestions.put(username, new ArrayList<>(count)));
+        if (count <= 0) {
+            return suggestions;
+        }
+        Set<String> assigned = new HashSet<>();
+        // every round checks the candidates of all names together, so a request costs at most MAX_ROUNDS lookups
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            Map<String, Set<String>> candidatesByUsername = new LinkedHashMap<>();
+            Set<String> candidates = new LinkedHashSet<>();
+            for (Map.Entry<String, List<String>> entry : suggestions.entrySet()) {
+                int missing = count - entry.getValue().size();
+                if (missing > 0) {
+                    Set<String> generated = generateCandidates(entry.getKey(), missing * CANDIDATES_PER_SUGGESTION, round);
+                    generated.removeAll(assigned);
+                    candidatesByUsername.put(entry.getKey(), generated);
+                    candidates.addAll(generated);
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            Set<String> taken = availabilityIndex.takenUsernames(candidates, repository::findExistingUsernames);
+            candidatesByUsername.forEach((username, generated) -> {
+                List<String> usernameSuggestions = suggestions.get(username);
+                for (String candidate : generated) {
+                    if (usernameSuggestions.size() == count) {
+                        break;
+                    }
+                    if (!taken.contains(candidate) && assigned.add(candidate)) {
+                        usernameSuggestions.add(candidate);
+                    }
+                }
+            });
+        }
+        return suggestions;
+    }
+
+    private static Set<String> generateCandidates(String username, int count, int round) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int bound = (int) Math.pow(10, round + 2);
+        Set<String> candidates = new LinkedHashSet<>();
+        while (candidates.size() < count) {
+            String separator = SEPARATORS[random.nextInt(SEPARATORS.length)];
+            candidates.add(username + separator + random.nextInt(1, bound));
+        }
+        return candidates;
+    }
+}
@@ -0,0 +1,66 @@
+package com.chatapp.bulk;
+
+import com.chatapp.model.UserAccount;
+import com.chatapp.repository.UserAccountRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Component
+public class UserAccountExporter {
+
+    private final UserAccountRepository repository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+
+    @Autowired
+    public UserAccountExporter(
+            UserAccountRepository repository,
+            PlatformTransactionManager transactionManager,
+            EntityManager entityManager,
+            ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(UserAccount.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void exportNdjson(OutputStream output) throws IOException {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<UserAccount> userAccounts = repository.streamAll();
+                     JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    Iterator<UserAccount> iterator = userAccounts.iterator();
+                    while (iterator.hasNext()) {
+                        UserAccount userAccount = iterator.next();
+                        writer.writeValue(generator, userAccount);
+                        generator.writeRaw('\n');
+                        // keep the persistence context empty so heap use does not grow with the table
+                        entityManager.detach(userAccount);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.chatapp.bulk;
+
+import com.chatapp.availability.AvailabilityIndex;
+import com.chatapp.dto.ImportFailure;
+import com.chatapp.dto.ImportReport;
+import com.chatapp.model.OutboxEventType;
+import com.chatapp.model.UserAccount;
+import com.chatapp.outbox.OutboxWriter;
+import com.chatapp.repository.UserAccountRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class UserAccountImporter {
+
+    private static final int MAX_REPORTED_FAILURES = 1000;
+
+    private final UserAccountRepository repository;
+    private final TransactionTemplate transaction;
+    private final AvailabilityIndex availabilityIndex;
+    private final OutboxWriter outboxWriter;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    @Autowired
+    public UserAccountImporter(
+            UserAccountRepository repository,
+            PlatformTransactionManager transactionManager,
+            AvailabilityIndex availabilityIndex,
+            OutboxWriter outboxWriter,
+            ObjectMapper objectMapper,
+            @Value("${import.batch-size}") int batchSize) {
+        this.repository = repository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.availabilityIndex = availabilityIndex;
+        this.outboxWriter = outboxWriter;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public ImportReport importNdjson(InputStream input) throws IOException {
+        Import anImport = new Import();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    anImport.add(lineNumber, objectMapper.readValue(line, UserAccount.class));
+                } catch (JsonProcessingException e) {
+                    anImport.fail(lineNumber, null, "malformed row: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return anImport.finish();
+    }
+
+    public ImportReport importCsv(InputStream input) throws IOException {
+        Import anImport = new Import();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return anImport.finish();
+            }
+            List<String> header = CsvLine.parse(headerLine);
+            String line;
+            long lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> values = CsvLine.parse(line);
+                if (values.size() != header.size()) {
+                    anImport.fail(lineNumber, null, "expected " + header.size() + " columns but found " + values.size());
+                    continue;
+                }
+                Map<String, String> row = new LinkedHashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    row.put(header.get(i), values.get(i).isEmpty() ? null : values.get(i));
+                }
+                try {
+                    anImport.add(lineNumber, objectMapper.convertValue(row, UserAccount.class));
+                } catch (IllegalArgumentException e) {
+                    anImport.fail(lineNumber, row.get("uid"), "malformed row: " + e.getMessage());
+                }
+            }
+        }
+        return anImport.finish();
+    }
+
+    private class Import {
+        private final List<Row> batch = new ArrayList<>(batchSize);
+        private final List<ImportFailure> failures = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        void add(long line, UserAccount userAccount) {
+            if (userAccount.getUid() == null || userAccount.getEmail() == null || userAccount.getUsername() == null) {
+                fail(line, userAccount.getUid(), "uid, email and username are required");
+                return;
+            }
+            batch.add(new Row(line, userAccount));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void fail(long line, String uid, String reason) {
+            failed++;
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add(new ImportFailure(line, uid, reason));
+            }
+        }
+
+        ImportReport finish() {
+            flush();
+            return new ImportReport(imported, failed, failures);
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<Row> accepted = rejectDuplicates(batch);
+            batch.clear();
+            if (accepted.isEmpty()) {
+                return;
+            }
+            try {
+                insert(accepted);
+            } catch (DataAccessException e) {
+                // another writer won a race for one of the keys; isolate the offending rows
+                log.debug("Batch insert failed, retrying {} rows one at a time", accepted.size(), e);
+                for (Row row : accepted) {
+                    try {
+                        insert(List.of(row));
+                    } catch (DataAccessException rowFailure) {
+                        fail(row.line, row.userAccount.getUid(),
+                                NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+                    }
+                }
+            }
+        }
+
+        private void insert(List<Row> rows) {
+            // persisting sets the version, and a row retried after a failed batch must still look new
+            rows.forEach(row -> {
+                row.userAccount.setVersion(null);
+                row.userAccount.setDeletedAt(null);
+            });
+            transaction.executeWithoutResult(status -> {
+                List<UserAccount> saved = repository.saveAllAndFlush(
+                        rows.stream().map(row -> row.userAccount).collect(Collectors.toList()));
+                saved.forEach(userAccount -> outboxWriter.record(OutboxEventType.ACCOUNT_CREATED, userAccount));
+            });
+            availabilityIndex.addUsernames(values(rows, UserAccount::getUsername));
+            availabilityIndex.addEmails(values(rows, UserAccount::getEmail));
+            imported += rows.size();
+        }
+
+        private List<Row> rejectDuplicates(List<Row> rows) {
+            Set<String> existingUids = new HashSet<>(repository.findExistingUids(values(rows, UserAccount::getUid)));
+            Set<String> takenUsernames = new HashSet<>(availabilityIndex.takenUsernames(
+                    values(rows, UserAccount::getUsername), repository::findExistingUsernames));
+            Set<String> takenEmails = new HashSet<>(availabilityIndex.takenEmails(
+                    values(rows, UserAccount::getEmail), repository::findExistingEmails));
+
+            List<Row> accepted = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                UserAccount userAccount = row.userAccount;
+                if (!existingUids.add(userAccount.getUid())) {
+                    fail(row.line, userAccount.getUid(), "uid " + userAccount.getUid() + " already exists");
+                } else if (!takenUsernames.add(userAccount.getUsername())) {
+                    fail(row.line, userAccount.getUid(), "username " + userAccount.getUsername() + " is taken");
+                } else if (!takenEmails.add(userAccount.getEmail())) {
+                    fail(row.line, userAccount.getUid(), "email " + userAccount.getEmail() + " is taken");
+                } else {
+                    accepted.add(row);
+                }
+            }
+            return accepted;
+        }
+
+        private Collection<String> values(List<Row> rows, Function<UserAccount, String> property) {
+            return rows.stream().map(row -> property.apply(row.userAccount)).collect(Collectors.toSet());
+        }
+    }
+
+    private static class Row {
+        private final long line;
+        private final UserAccount userAccount;
+
+        private Row(long line, UserAccount userAccount) {
+            this.line = line;
+            this.userAccount = userAccount;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.chatapp.cache;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CacheInvalidationBus {
+    String USER_ACCOUNTS_TOPIC = "user_account_invalidation";
+
+    void publish(String topic, Collection<String> keys);
+    void subscribe(String topic, CacheInvalidationListener listener);
+
+    default void publish(String uid) {
+        publish(USER_ACCOUNTS_TOPIC, List.of(uid));
+    }
+
+    default void subscribe(CacheInvalidationListener listener) {
+        subscribe(USER_ACCOUNTS_TOPIC, listener);
+    }
+}
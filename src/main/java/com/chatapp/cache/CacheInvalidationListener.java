@@ -0,0 +1,6 @@
+package com.chatapp.cache;
+
+public interface CacheInvalidationListener {
+    void invalidate(String key);
+    void invalidateAll();
+}
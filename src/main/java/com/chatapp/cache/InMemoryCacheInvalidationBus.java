@@ -0,0 +1,23 @@
+package com.chatapp.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class InMemoryCacheInvalidationBus implements CacheInvalidationBus {
+
+    private final ConcurrentMap<String, List<CacheInvalidationListener>> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String topic, Collection<String> keys) {
+        List<CacheInvalidationListener> topicListeners = listeners.getOrDefault(topic, List.of());
+        keys.forEach(key -> topicListeners.forEach(listener -> listener.invalidate(key)));
+    }
+
+    @Override
+    public void subscribe(String topic, CacheInvalidationListener listener) {
+        listeners.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+}
@@ -0,0 +1,136 @@
+package com.chatapp.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+@Slf4j
+public class PostgresCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final Pattern TOPIC = Pattern.compile("[a-z_]+");
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, key) FROM unnest(?) AS key";
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentMap<String, List<CacheInvalidationListener>> listeners = new ConcurrentHashMap<>();
+    private final Thread listenerThread = new Thread(this::listen, "postgres-cache-invalidation");
+
+    private volatile boolean running;
+
+    public PostgresCacheInvalidationBus(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        listenerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listenerThread.interrupt();
+    }
+
+    @Override
+    public void publish(String topic, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        // one round trip for the whole batch; inside a transaction the notifications go out on commit
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(NOTIFY_SQL);
+            statement.setString(1, topic);
+            statement.setArray(2, connection.createArrayOf("text", keys.toArray()));
+            return statement;
+        }, (ResultSetExtractor<Void>) resultSet -> null);
+    }
+
+    @Override
+    public void subscribe(String topic, CacheInvalidationListener listener) {
+        if (!TOPIC.matcher(topic).matches()) {
+            throw new IllegalArgumentException("Invalid invalidation topic " + topic);
+        }
+        listeners.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                Set<String> listening = new HashSet<>();
+                listenToNewTopics(connection, listening);
+                if (reconnecting) {
+                    listeners.values().forEach(topicListeners ->
+                            topicListeners.forEach(CacheInvalidationListener::invalidateAll));
+                }
+                reconnecting = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification);
+                        }
+                    }
+                    // listeners may subscribe after the connection is up
+                    listenToNewTopics(connection, listening);
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost LISTEN connection on {}, reconnecting", listeners.keySet(), e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(PGNotification notification) {
+        for (CacheInvalidationListener listener : listeners.getOrDefault(notification.getName(), List.of())) {
+            try {
+                listener.invalidate(notification.getParameter());
+            } catch (RuntimeException e) {
+                log.warn("Invalidation listener failed on {}", notification.getName(), e);
+            }
+        }
+    }
+
+    private void listenToNewTopics(Connection connection, Set<String> listening) throws SQLException {
+        for (String topic : listeners.keySet()) {
+            if (!listening.contains(topic)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + topic);
+                }
+                listening.add(topic);
+            }
+        }
+    }
+}
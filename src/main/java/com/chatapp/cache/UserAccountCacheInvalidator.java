@@ -0,0 +1,35 @@
+package com.chatapp.cache;
+
+import com.chatapp.config.CacheConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserAccountCacheInvalidator implements CacheInvalidationListener {
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public UserAccountCacheInvalidator(CacheManager cacheManager, CacheInvalidationBus invalidationBus) {
+        this.cacheManager = cacheManager;
+        invalidationBus.subscribe(this);
+    }
+
+    @Override
+    public void invalidate(String uid) {
+        Cache cache = cacheManager.getCache(CacheConfig.USER_ACCOUNTS);
+        if (cache != null) {
+            cache.evict(uid);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        Cache cache = cacheManager.getCache(CacheConfig.USER_ACCOUNTS);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.chatapp.config;
+
+import com.chatapp.cache.CacheInvalidationBus;
+import com.chatapp.cache.InMemoryCacheInvalidationBus;
+import com.chatapp.cache.PostgresCacheInvalidationBus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String USER_ACCOUNTS = "userAccounts";
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "postgres", matchIfMissing = true)
+    public CacheInvalidationBus postgresCacheInvalidationBus(DataSource dataSource) {
+        return new PostgresCacheInvalidationBus(dataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "in-memory")
+    public CacheInvalidationBus inMemoryCacheInvalidationBus() {
+        return new InMemoryCacheInvalidationBus();
+    }
+}
@@ -1,10 +1,14 @@
 package com.chatapp.config;
 
+import com.chatapp.firebase.AdminSdkFirebaseUserGateway;
+import com.chatapp.firebase.FirebaseUserGateway;
+import com.chatapp.firebase.InMemoryFirebaseUserGateway;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.cloud.StorageClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
@@ -46,4 +50,16 @@ public class FirebaseConfig {
     public FirebaseAuth firebaseAuth() {
         return FirebaseAuth.getInstance();
     }
+
+    @Bean
+    @ConditionalOnProperty(name = "firebase.gateway", havingValue = "admin-sdk", matchIfMissing = true)
+    public FirebaseUserGateway adminSdkFirebaseUserGateway(FirebaseAuth firebaseAuth) {
+        return new AdminSdkFirebaseUserGateway(firebaseAuth);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "firebase.gateway", havingValue = "in-memory")
+    public FirebaseUserGateway inMemoryFirebaseUserGateway() {
+        return new InMemoryFirebaseUserGateway();
+    }
 }
@@ -0,0 +1,31 @@
+package com.chatapp.config;
+
+import com.chatapp.outbox.FileOutboxSink;
+import com.chatapp.outbox.InProcessOutboxSink;
+import com.chatapp.outbox.OutboxSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "outbox.sink", havingValue = "in-process", matchIfMissing = true)
+    public OutboxSink inProcessOutboxSink(ApplicationEventPublisher eventPublisher) {
+        return new InProcessOutboxSink(eventPublisher);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "outbox.sink", havingValue = "file")
+    public OutboxSink fileOutboxSink(
+            @Value("${outbox.file.path}") String path,
+            ObjectMapper objectMapper) {
+        return new FileOutboxSink(Path.of(path), objectMapper);
+    }
+}
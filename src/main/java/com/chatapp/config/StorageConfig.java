@@ -0,0 +1,33 @@
+package com.chatapp.config;
+
+import com.chatapp.storage.FirebasePhotoStorage;
+import com.chatapp.storage.LocalPhotoStorage;
+import com.chatapp.storage.PhotoStorage;
+import com.google.firebase.cloud.StorageClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.provider", havingValue = "firebase", matchIfMissing = true)
+    public PhotoStorage firebasePhotoStorage(
+            StorageClient storageClient,
+            @Value("${storage.photo.buffer-size}") DataSize chunkSize) {
+        return new FirebasePhotoStorage(storageClient, (int) chunkSize.toBytes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.provider", havingValue = "local")
+    public PhotoStorage localPhotoStorage(
+            @Value("${storage.local.root}") String root,
+            @Value("${storage.local.base-url}") String baseUrl) {
+        return new LocalPhotoStorage(Path.of(root), baseUrl);
+    }
+}
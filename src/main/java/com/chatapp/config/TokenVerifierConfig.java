@@ -0,0 +1,41 @@
+package com.chatapp.config;
+
+import com.chatapp.security.FirebaseTokenVerifier;
+import com.chatapp.security.GooglePublicKeySet;
+import com.chatapp.security.JwtTokenVerifier;
+import com.chatapp.security.TokenVerifier;
+import com.google.firebase.auth.FirebaseAuth;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class TokenVerifierConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "auth.token-verifier", havingValue = "offline", matchIfMissing = true)
+    public GooglePublicKeySet googlePublicKeySet(
+            @Value("${auth.public-keys.url}") String url,
+            @Value("${auth.public-keys.default-refresh-interval}") Duration defaultRefreshInterval) {
+        return new GooglePublicKeySet(url, defaultRefreshInterval);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "auth.token-verifier", havingValue = "offline", matchIfMissing = true)
+    public TokenVerifier jwtTokenVerifier(
+            GooglePublicKeySet googlePublicKeySet,
+            @Value("${auth.firebase-project-id}") String projectId,
+            @Value("${auth.clock-skew}") Duration clockSkew) {
+        return new JwtTokenVerifier(googlePublicKeySet, projectId, clockSkew, Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "auth.token-verifier", havingValue = "firebase")
+    public TokenVerifier firebaseTokenVerifier(FirebaseAuth firebaseAuth) {
+        return new FirebaseTokenVerifier(firebaseAuth);
+    }
+}
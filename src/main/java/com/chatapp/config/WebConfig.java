@@ -0,0 +1,25 @@
+package com.chatapp.config;
+
+import com.chatapp.security.FirebaseUidArgumentResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final FirebaseUidArgumentResolver firebaseUidArgumentResolver;
+
+    @Autowired
+    public WebConfig(FirebaseUidArgumentResolver firebaseUidArgumentResolver) {
+        this.firebaseUidArgumentResolver = firebaseUidArgumentResolver;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(firebaseUidArgumentResolver);
+    }
+}
@@ -1,50 +1,79 @@
 package com.chatapp.controller;
 
+import com.chatapp.dto.AvailabilityRequest;
+import com.chatapp.dto.AvailabilityResponse;
+import com.chatapp.dto.BatchLookupRequest;
+import com.chatapp.dto.BatchLookupResponse;
+import com.chatapp.dto.ChangeCursor;
+import com.chatapp.dto.ChangesResponse;
 import com.chatapp.dto.ContactDTO;
+import com.chatapp.dto.ImportReport;
+import com.chatapp.dto.PresenceUpdate;
+import com.chatapp.exception.InvalidCursorException;
+import com.chatapp.exception.UserAccountModifiedException;
+import com.chatapp.model.PresenceStatus;
 import com.chatapp.model.UserAccount;
 import com.chatapp.model.UserPersonalInfo;
+import com.chatapp.presence.PresenceHub;
+import com.chatapp.security.FirebaseUid;
 import com.chatapp.services.UserAccountService;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.FirebaseToken;
-import com.google.firebase.auth.UserRecord.UpdateRequest;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
 
-@RestController @CrossOrigin
+@RestController @CrossOrigin(exposedHeaders = {UserAccountController.NEXT_CURSOR_HEADER, HttpHeaders.ETAG})
 public class UserAccountController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final UserAccountService userAccountService;
-    private final ModelMapper modelMapper;
+    private final PresenceHub presenceHub;
 
     @Autowired
-    public UserAccountController(UserAccountService userAccountService, ModelMapper modelMapper) {
-        modelMapper.getConfiguration().setAmbiguityIgnored(true);
+    public UserAccountController(UserAccountService userAccountService, PresenceHub presenceHub) {
         this.userAccountService = userAccountService;
-        this.modelMapper = modelMapper;
+        this.presenceHub = presenceHub;
     }
 
     @PostMapping(path = "/user")
-    public UserAccount getUser(@RequestHeader(name = "Authorization", required = false) String authHeader) throws FirebaseAuthException {
-        String idToken = getBearerToken(authHeader);
-        FirebaseToken firebaseToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-
-        return userAccountService.findUserAccount(firebaseToken.getUid());
+    public ResponseEntity<UserAccount> getUser(@FirebaseUid String uid) {
+        UserAccount userAccount = userAccountService.findUserAccount(uid);
+        return ResponseEntity.ok().eTag(String.valueOf(userAccount.getVersion())).body(userAccount);
     }
 
     @PostMapping(path = "/register")
-    public ResponseEntity<UserAccount> createUser(@RequestBody UserAccount newUserAccount) {
+    public ResponseEntity<UserAccount> createUser(
+            @RequestBody UserAccount newUserAccount,
+            @FirebaseUid String uid) {
+        newUserAccount.setUid(uid);
         return userAccountService.addUserAccount(newUserAccount);
     }
 
+    @PostMapping(path = "/users/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ImportReport importUsers(
+            InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            @FirebaseUid String uid) throws IOException {
+        return userAccountService.importUserAccounts(body, contentType, uid);
+    }
+
+    @GetMapping(path = "/users/export", produces = "application/x-ndjson")
+    public StreamingResponseBody exportUsers(@FirebaseUid String uid) {
+        return userAccountService.exportUserAccounts(uid);
+    }
+
     @PostMapping(path = "/email-availability")
     public Boolean checkEmailAvailability(@RequestBody String email) {
         return userAccountService.checkEmailAvailability(email);
@@ -55,94 +84,131 @@ public class UserAccountController {
         return userAccountService.checkUsernameAvailability(username);
     }
 
+    @PostMapping(path = "/availability")
+    public AvailabilityResponse checkAvailability(@RequestBody AvailabilityRequest request) {
+        return userAccountService.checkAvailability(request);
+    }
+
+    @PostMapping(path = "/users/batch")
+    public BatchLookupResponse getUsers(
+            @RequestBody BatchLookupRequest request,
+            @FirebaseUid String uid) {
+        return userAccountService.findContactsByUid(request.getUids());
+    }
+
     @PutMapping(path = "/user")
     public ResponseEntity<UserAccount> updateUser(
             @RequestBody UserAccount userAccount,
-            @RequestHeader(name = "Authorization", required = false) String authHeader) throws FirebaseAuthException {
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @FirebaseUid String uid) {
 
-        String idToken = getBearerToken(authHeader);
-        FirebaseToken firebaseToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-
-        return userAccountService.updateUserAccount(userAccount, firebaseToken.getUid());
+        return userAccountService.updateUserAccount(userAccount, uid, expectedVersion(ifMatch, uid));
     }
 
     @PutMapping(path = "/user/personal_info")
     public ResponseEntity<UserAccount> updateUserPersonalInfo(
             @RequestBody UserPersonalInfo userPersonalInfo,
-            @RequestHeader(name = "Authorization", required = false) String authHeader) throws FirebaseAuthException {
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @FirebaseUid String uid) {
 
-        String idToken = getBearerToken(authHeader);
-        FirebaseToken firebaseToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
+        return userAccountService.updateUserPersonalInfo(userPersonalInfo, uid, expectedVersion(ifMatch, uid));
+    }
 
-        return userAccountService.updateUserPersonalInfo(userPersonalInfo, firebaseToken.getUid());
+    @DeleteMapping(path = "/user")
+    public ResponseEntity<UserAccount> deleteUser(@FirebaseUid String uid) {
+        return userAccountService.deleteUserAccount(uid);
     }
 
     @PatchMapping(path = "/user/change_email")
     public ResponseEntity<UserAccount> updateEmail(
             @RequestBody String newEmail,
-            @RequestHeader(name = "Authorization", required = false) String authHeader) throws FirebaseAuthException {
-        String idToken = getBearerToken(authHeader);
-        FirebaseToken firebaseToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-        UpdateRequest request = new UpdateRequest(firebaseToken.getUid()).setEmail(newEmail);
+            @FirebaseUid String uid) {
 
-        return userAccountService.updateEmail(newEmail, firebaseToken.getUid(), request);
+        return userAccountService.updateEmail(newEmail, uid);
     }
 
     @PatchMapping(path = "/user/change_username")
     public ResponseEntity<UserAccount> updateUsername(
             @RequestBody String newUsername,
-            @RequestHeader(name = "Authorization") String authHeader) throws FirebaseAuthException {
+            @FirebaseUid String uid) {
 
-        String idToken = getBearerToken(authHeader);
-        FirebaseToken firebaseToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
+        return userAccountService.updateUsername(newUsername, uid);
+    }
 
-        return userAccountService.updateUsername(newUsername, firebaseToken.getUid());
+    @PutMapping(path = "/user/presence")
+    public ResponseEntity<Void> updatePresence(
+            @RequestBody PresenceUpdate presenceUpdate,
+            @FirebaseUid String uid) {
+        userAccountService.updatePresence(PresenceStatus.of(presenceUpdate.getStatus()), uid);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(path = "/user/presence/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPresence(
+            @RequestParam("uids") List<String> uids,
+            @FirebaseUid String uid) {
+        return presenceHub.subscribe(uids);
     }
 
     @PostMapping(path = "/user/change_profile_photo")
     public ResponseEntity<UserAccount> updateProfilePhoto(
             @RequestParam("file") MultipartFile photo,
-            @RequestHeader(name = "Authorization", required = false) String authHeader)
-            throws FirebaseAuthException, IOException {
-        String idToken = getBearerToken(authHeader);
-        FirebaseToken firebaseToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-
-        return userAccountService.updateProfilePhoto(photo, firebaseToken.getUid());
+            @FirebaseUid String uid) throws IOException {
+        return userAccountService.updateProfilePhoto(photo, uid);
     }
 
     @GetMapping(path = "/user/search")
     public ResponseEntity<List<ContactDTO>> getContacts(
             @RequestParam(name = "query", required = false) String searchQuery,
-            @RequestHeader(name = "Authorization", required = false) String authHeader) throws FirebaseAuthException {
-        String idToken = getBearerToken(authHeader);
-        FirebaseToken firebaseToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-        List<UserAccount> userAccounts = userAccountService.findUserAccounts(searchQuery, firebaseToken.getUid());
-
-        return ResponseEntity.ok(
-                userAccounts.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList())
-        );
-
+            @RequestParam(name = "after", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "${search.default-page-size}") int size,
+            @FirebaseUid String uid) {
+        Slice<ContactDTO> contacts =
+                userAccountService.findContacts(searchQuery, decodeCursor(cursor), size, uid);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (contacts.hasNext()) {
+            List<ContactDTO> content = contacts.getContent();
+            response.header(NEXT_CURSOR_HEADER, encodeCursor(content.get(content.size() - 1).getUsername()));
+        }
+        return response.body(contacts.getContent());
     }
 
-    private ContactDTO convertToDto(UserAccount userAccount) {
-        ContactDTO contactDTO = modelMapper.map(userAccount, ContactDTO.class);
+    @GetMapping(path = "/users/changes")
+    public ChangesResponse getChanges(
+            @RequestParam(name = "since", required = false) String since,
+            @RequestParam(name = "size", defaultValue = "${changes.default-page-size}") int size,
+            @FirebaseUid String uid) {
+        return userAccountService.findChanges(ChangeCursor.decode(since), size);
+    }
 
-        String fullName = userAccount.getFirstName() == null || userAccount.getLastName() == null
-                ? "" : userAccount.getFirstName() + " " + userAccount.getLastName();
+    private Long expectedVersion(String ifMatch, String uid) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        try {
+            return Long.valueOf(tag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new UserAccountModifiedException(uid);
+        }
+    }
 
-        contactDTO.setName(fullName);
-        contactDTO.setAvatar(userAccount.getPhotoUrl());
-        contactDTO.setId(userAccount.getUid());
-        return contactDTO;
+    private String encodeCursor(String username) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(username.getBytes(StandardCharsets.UTF_8));
     }
 
-    private String getBearerToken(String authHeader) {
-        String bearerToken = "";
-        if (StringUtils.hasText(authHeader) && authHeader.startsWith("Bearer ")) {
-            bearerToken = authHeader.substring(7);
+    private String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
         }
-        return bearerToken;
     }
 }
\ No newline at end of file
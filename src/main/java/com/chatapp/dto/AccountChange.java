@@ -0,0 +1,22 @@
+package com.chatapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class AccountChange {
+    private String uid;
+
+    private OffsetDateTime changedAt;
+
+    private boolean deleted;
+
+    private ContactDTO contact;
+}
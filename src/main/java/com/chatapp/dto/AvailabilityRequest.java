@@ -0,0 +1,17 @@
+package com.chatapp.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class AvailabilityRequest {
+    private List<String> usernames = new ArrayList<>();
+
+    private List<String> emails = new ArrayList<>();
+
+    private int suggestions;
+}
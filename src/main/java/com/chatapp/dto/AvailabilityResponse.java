@@ -0,0 +1,21 @@
+package com.chatapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class AvailabilityResponse {
+    private List<String> takenUsernames;
+
+    private List<String> takenEmails;
+
+    private Map<String, List<String>> suggestedUsernames;
+}
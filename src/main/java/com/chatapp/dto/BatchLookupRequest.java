@@ -0,0 +1,13 @@
+package com.chatapp.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchLookupRequest {
+    private List<String> uids = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package com.chatapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class BatchLookupResponse {
+    private List<ContactDTO> contacts;
+
+    private List<String> missingUids;
+}
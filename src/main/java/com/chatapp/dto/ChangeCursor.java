@@ -0,0 +1,65 @@
+package com.chatapp.dto;
+
+import com.chatapp.exception.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+
+@AllArgsConstructor
+@Getter
+public class ChangeCursor implements Comparable<ChangeCursor> {
+    public static final ChangeCursor START = new ChangeCursor(0, "");
+
+    // code point order is the byte order of UTF-8, which is what the feed queries sort by with collate "C"
+    private static final Comparator<ChangeCursor> ORDER = Comparator.comparingLong(ChangeCursor::getChangeXid)
+            .thenComparing(ChangeCursor::getUid, ChangeCursor::compareCodePoints);
+
+    // id of the transaction that made the change; see UserAccountRepository#findSettledXid
+    private final long changeXid;
+
+    private final String uid;
+
+    public static ChangeCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return START;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+            if (separator < 0) {
+                throw new InvalidCursorException(cursor);
+            }
+            return new ChangeCursor(Long.parseLong(decoded.substring(0, separator)), decoded.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    public String encode() {
+        String cursor = changeXid + "|" + uid;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int compareTo(ChangeCursor other) {
+        return ORDER.compare(this, other);
+    }
+
+    private static int compareCodePoints(String left, String right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length() && j < right.length()) {
+            int leftCodePoint = left.codePointAt(i);
+            int rightCodePoint = right.codePointAt(j);
+            if (leftCodePoint != rightCodePoint) {
+                return Integer.compare(leftCodePoint, rightCodePoint);
+            }
+            i += Character.charCount(leftCodePoint);
+            j += Character.charCount(rightCodePoint);
+        }
+        return Integer.compare(left.length() - i, right.length() - j);
+    }
+}
@@ -0,0 +1,20 @@
+package com.chatapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ChangesResponse {
+    private List<AccountChange> changes;
+
+    private String nextCursor;
+
+    private boolean hasMore;
+}
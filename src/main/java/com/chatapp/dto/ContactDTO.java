@@ -1,10 +1,12 @@
 package com.chatapp.dto;
 
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.time.OffsetDateTime;
 
+@NoArgsConstructor
 @Getter
 @Setter
 public class ContactDTO {
@@ -25,4 +27,30 @@ public class ContactDTO {
     private String status;
 
     private OffsetDateTime lastActivity;
+
+    public ContactDTO(
+            String id,
+            String email,
+            String username,
+            String firstName,
+            String lastName,
+            String address,
+            String phoneNumber,
+            String avatar,
+            String status,
+            OffsetDateTime lastActivity) {
+        this.id = id;
+        this.email = email;
+        this.username = username;
+        this.name = fullName(firstName, lastName);
+        this.address = address;
+        this.phoneNumber = phoneNumber;
+        this.avatar = avatar;
+        this.status = status;
+        this.lastActivity = lastActivity;
+    }
+
+    public static String fullName(String firstName, String lastName) {
+        return firstName == null || lastName == null ? "" : firstName + " " + lastName;
+    }
 }
@@ -0,0 +1,18 @@
+package com.chatapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ImportFailure {
+    private long line;
+
+    private String uid;
+
+    private String reason;
+}
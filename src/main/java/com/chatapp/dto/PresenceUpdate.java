@@ -0,0 +1,10 @@
+package com.chatapp.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class PresenceUpdate {
+    private String status;
+}
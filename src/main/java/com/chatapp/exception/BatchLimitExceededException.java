@@ -0,0 +1,7 @@
+package com.chatapp.exception;
+
+public class BatchLimitExceededException extends RuntimeException {
+    public BatchLimitExceededException(String what, int limit) {
+        super("At most " + limit + " " + what + " can be sent in one request.");
+    }
+}
@@ -0,0 +1,7 @@
+package com.chatapp.exception;
+
+public class BulkAccessNotAllowedException extends RuntimeException {
+    public BulkAccessNotAllowedException(String uid) {
+        super("User " + uid + " is not allowed to import or export user accounts.");
+    }
+}
@@ -0,0 +1,7 @@
+package com.chatapp.exception;
+
+public class InvalidPhotoException extends RuntimeException {
+    public InvalidPhotoException(String reason) {
+        super("Photo was rejected: " + reason);
+    }
+}
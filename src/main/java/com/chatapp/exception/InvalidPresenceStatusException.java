@@ -0,0 +1,7 @@
+package com.chatapp.exception;
+
+public class InvalidPresenceStatusException extends RuntimeException {
+    public InvalidPresenceStatusException(String status) {
+        super("Presence status " + status + " is not valid.");
+    }
+}
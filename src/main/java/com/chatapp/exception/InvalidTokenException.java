@@ -0,0 +1,11 @@
+package com.chatapp.exception;
+
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String reason) {
+        super("Invalid ID token: " + reason);
+    }
+
+    public InvalidTokenException(String reason, Throwable cause) {
+        super("Invalid ID token: " + reason, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.chatapp.exception;
+
+public class InvalidUidsException extends RuntimeException {
+    public InvalidUidsException() {
+        super("uids must be a list of uids without null entries.");
+    }
+}
@@ -0,0 +1,7 @@
+package com.chatapp.exception;
+
+public class TooManyUploadsException extends RuntimeException {
+    public TooManyUploadsException() {
+        super("Too many photo uploads are in progress. Try again later.");
+    }
+}
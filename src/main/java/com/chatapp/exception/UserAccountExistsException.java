@@ -0,0 +1,7 @@
+package com.chatapp.exception;
+
+public class UserAccountExistsException extends RuntimeException {
+    public UserAccountExistsException(String uid) {
+        super("An account for user " + uid + " already exists.");
+    }
+}
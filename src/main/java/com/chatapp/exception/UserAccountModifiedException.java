@@ -0,0 +1,7 @@
+package com.chatapp.exception;
+
+public class UserAccountModifiedException extends RuntimeException {
+    public UserAccountModifiedException(String uid) {
+        super("User account " + uid + " has been modified. Fetch it again and retry.");
+    }
+}
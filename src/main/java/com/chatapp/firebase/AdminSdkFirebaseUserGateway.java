@@ -0,0 +1,32 @@
+package com.chatapp.firebase;
+
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.UserRecord.UpdateRequest;
+
+public class AdminSdkFirebaseUserGateway implements FirebaseUserGateway {
+
+    private final FirebaseAuth firebaseAuth;
+
+    public AdminSdkFirebaseUserGateway(FirebaseAuth firebaseAuth) {
+        this.firebaseAuth = firebaseAuth;
+    }
+
+    @Override
+    public void updateEmail(String uid, String email) throws FirebaseAuthException {
+        firebaseAuth.updateUser(new UpdateRequest(uid).setEmail(email));
+    }
+
+    @Override
+    public void deleteUser(String uid) throws FirebaseAuthException {
+        try {
+            firebaseAuth.deleteUser(uid);
+        } catch (FirebaseAuthException e) {
+            // a retried deletion finds the user already gone
+            if (e.getAuthErrorCode() != AuthErrorCode.USER_NOT_FOUND) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.chatapp.firebase;
+
+import com.chatapp.model.FirebaseSyncJob;
+import com.chatapp.model.FirebaseSyncType;
+import com.chatapp.repository.FirebaseSyncJobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+@Component
+public class FirebaseSyncQueue {
+
+    private final FirebaseSyncJobRepository repository;
+
+    @Autowired
+    public FirebaseSyncQueue(FirebaseSyncJobRepository repository) {
+        this.repository = repository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueEmailUpdate(String uid, String email) {
+        enqueue(uid, FirebaseSyncType.UPDATE_EMAIL, email);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueUserDeletion(String uid) {
+        enqueue(uid, FirebaseSyncType.DELETE_USER, null);
+    }
+
+    private void enqueue(String uid, FirebaseSyncType type, String email) {
+        OffsetDateTime now = OffsetDateTime.now();
+        repository.save(FirebaseSyncJob.builder()
+                .uid(uid)
+                .type(type)
+                .email(email)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+    }
+}
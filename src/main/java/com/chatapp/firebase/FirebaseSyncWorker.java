@@ -0,0 +1,195 @@
+package com.chatapp.firebase;
+
+import com.chatapp.model.FirebaseSyncJob;
+import com.chatapp.repository.FirebaseSyncJobRepository;
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.FirebaseAuthException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+public class FirebaseSyncWorker {
+
+    private static final Set<AuthErrorCode> PERMANENT_ERRORS =
+            EnumSet.of(AuthErrorCode.USER_NOT_FOUND, AuthErrorCode.EMAIL_ALREADY_EXISTS);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final FirebaseSyncJobRepository repository;
+    private final FirebaseUserGateway gateway;
+    private final TransactionTemplate transaction;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter succeeded;
+    private final Counter superseded;
+    private final Counter retried;
+    private final Counter failed;
+
+    @Autowired
+    public FirebaseSyncWorker(
+            FirebaseSyncJobRepository repository,
+            FirebaseUserGateway gateway,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${firebase.sync.threads}") int threads,
+            @Value("${firebase.sync.max-in-flight}") int maxInFlight,
+            @Value("${firebase.sync.max-attempts}") int maxAttempts,
+            @Value("${firebase.sync.lease}") Duration lease,
+            @Value("${firebase.sync.initial-backoff}") Duration initialBackoff,
+            @Value("${firebase.sync.max-backoff}") Duration maxBackoff) {
+        this.repository = repository;
+        this.gateway = gateway;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxInFlight = maxInFlight;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "firebase-sync-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.succeeded = meterRegistry.counter("firebase.sync.jobs", "outcome", "succeeded");
+        this.superseded = meterRegistry.counter("firebase.sync.jobs", "outcome", "superseded");
+        this.retried = meterRegistry.counter("firebase.sync.jobs", "outcome", "retried");
+        this.failed = meterRegistry.counter("firebase.sync.jobs", "outcome", "failed");
+    }
+
+    @Scheduled(fixedDelayString = "${firebase.sync.poll-interval}")
+    public void poll() {
+        // never waits for the jobs, so a slow Firebase cannot hold up the shared scheduler threads
+        int free = maxInFlight - inFlight.get();
+        if (free <= 0) {
+            return;
+        }
+        List<FirebaseSyncJob> jobs;
+        try {
+            OffsetDateTime now = OffsetDateTime.now();
+            // a claimed job stays invisible for the lease, so a crashed worker's jobs come back on their own
+            jobs = repository.claim(now, now.plus(lease), maxAttempts, free);
+        } catch (DataAccessException e) {
+            log.warn("Could not claim Firebase sync jobs, retrying with the next poll", e);
+            return;
+        }
+        for (FirebaseSyncJob job : jobs) {
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        run(job);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // shutting down; the job comes back when its lease ends
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Firebase sync jobs still running at shutdown are retried after their lease");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void run(FirebaseSyncJob job) {
+        try {
+            transaction.executeWithoutResult(status -> apply(job));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Could not record the outcome of Firebase {} for {}, retrying after the lease",
+                    job.getType(), job.getUid(), e);
+        }
+    }
+
+    private void apply(FirebaseSyncJob job) {
+        // a job claimed before a newer one was enqueued may still be running elsewhere; take turns per uid
+        // and let only the newest job talk to Firebase, so an old email can never land last
+        repository.lockUid(job.getUid());
+        if (repository.existsByUidAndTypeAndIdGreaterThan(job.getUid(), job.getType(), job.getId())) {
+            log.debug("Skipping Firebase {} {} for {}, a newer job replaces it", job.getType(), job.getId(), job.getUid());
+            superseded.increment();
+            return;
+        }
+        try {
+            execute(job);
+            repository.deleteCompleted(job.getUid(), job.getType(), job.getId());
+            succeeded.increment();
+        } catch (FirebaseAuthException | RuntimeException e) {
+            if (isPermanent(e) || job.getAttempts() >= maxAttempts) {
+                log.error("Giving up on Firebase {} for {} after {} attempts", job.getType(), job.getUid(), job.getAttempts(), e);
+                repository.updateAfterFailure(job.getId(), maxAttempts, OffsetDateTime.now(), e.getMessage());
+                failed.increment();
+            } else {
+                log.warn("Firebase {} for {} failed, retrying", job.getType(), job.getUid(), e);
+                repository.updateAfterFailure(
+                        job.getId(), job.getAttempts(), OffsetDateTime.now().plus(backoff(job.getAttempts())), e.getMessage());
+                retried.increment();
+            }
+        }
+    }
+
+    private void execute(FirebaseSyncJob job) throws FirebaseAuthException {
+        switch (job.getType()) {
+            case UPDATE_EMAIL:
+                gateway.updateEmail(job.getUid(), job.getEmail());
+                break;
+            case DELETE_USER:
+                gateway.deleteUser(job.getUid());
+                break;
+            default:
+                throw new IllegalStateException("Unknown Firebase sync job type " + job.getType());
+        }
+    }
+
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 30));
+        if (delay.compareTo(maxBackoff) > 0) {
+            delay = maxBackoff;
+        }
+        // jitter spreads out retries of jobs that failed together, e.g. during a Firebase outage
+        long millis = delay.toMillis();
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(millis / 2, millis + 1));
+    }
+
+    private static boolean isPermanent(Exception e) {
+        return e instanceof FirebaseAuthException && PERMANENT_ERRORS.contains(((FirebaseAuthException) e).getAuthErrorCode());
+    }
+}
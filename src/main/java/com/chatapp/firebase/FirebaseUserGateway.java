@@ -0,0 +1,8 @@
+package com.chatapp.firebase;
+
+import com.google.firebase.auth.FirebaseAuthException;
+
+public interface FirebaseUserGateway {
+    void updateEmail(String uid, String email) throws FirebaseAuthException;
+    void deleteUser(String uid) throws FirebaseAuthException;
+}
@@ -0,0 +1,24 @@
+package com.chatapp.firebase;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryFirebaseUserGateway implements FirebaseUserGateway {
+
+    private final Map<String, String> emails = new ConcurrentHashMap<>();
+
+    @Override
+    public void updateEmail(String uid, String email) {
+        emails.put(uid, email);
+    }
+
+    @Override
+    public void deleteUser(String uid) {
+        emails.remove(uid);
+    }
+
+    public Optional<String> getEmail(String uid) {
+        return Optional.ofNullable(emails.get(uid));
+    }
+}
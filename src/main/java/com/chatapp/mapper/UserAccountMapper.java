@@ -0,0 +1,16 @@
+package com.chatapp.mapper;
+
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.model.UserAccount;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR, imports = ContactDTO.class)
+public interface UserAccountMapper {
+
+    @Mapping(target = "id", source = "uid")
+    @Mapping(target = "name", expression = "java(ContactDTO.fullName(userAccount.getFirstName(), userAccount.getLastName()))")
+    @Mapping(target = "avatar", source = "avatarUrl", defaultExpression = "java(userAccount.getPhotoUrl())")
+    ContactDTO toContact(UserAccount userAccount);
+}
@@ -0,0 +1,32 @@
+package com.chatapp.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.OffsetDateTime;
+
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "account_tombstone")
+public class AccountTombstone {
+  @Id private String uid;
+
+  @Column(nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime deletedAt;
+
+  // stamped by the account_tombstone change trigger, see UserAccountSchemaInitializer
+  @Column(insertable = false, updatable = false)
+  private Long changeXid;
+
+  public AccountTombstone(String uid, OffsetDateTime deletedAt) {
+    this.uid = uid;
+    this.deletedAt = deletedAt;
+  }
+}
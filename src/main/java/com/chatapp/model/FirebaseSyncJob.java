@@ -0,0 +1,53 @@
+package com.chatapp.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.OffsetDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Entity
+@Table(name = "firebase_sync_job")
+public class FirebaseSyncJob {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "firebase_sync_job_seq")
+  @SequenceGenerator(name = "firebase_sync_job_seq", sequenceName = "firebase_sync_job_seq", allocationSize = 50)
+  private Long id;
+
+  @Column(nullable = false)
+  private String uid;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private FirebaseSyncType type;
+
+  private String email;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime nextAttemptAt;
+
+  @Column(nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime createdAt;
+
+  @Column(columnDefinition = "text")
+  private String lastError;
+}
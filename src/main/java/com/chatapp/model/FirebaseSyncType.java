@@ -0,0 +1,6 @@
+package com.chatapp.model;
+
+public enum FirebaseSyncType {
+    UPDATE_EMAIL,
+    DELETE_USER
+}
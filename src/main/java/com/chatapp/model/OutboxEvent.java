@@ -0,0 +1,47 @@
+package com.chatapp.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.OffsetDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+  @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+  private Long id;
+
+  @Column(nullable = false)
+  private String aggregateId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private OutboxEventType type;
+
+  @JsonRawValue
+  @Column(nullable = false, columnDefinition = "text")
+  private String payload;
+
+  @Column(nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime createdAt;
+}
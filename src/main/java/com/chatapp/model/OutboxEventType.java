@@ -0,0 +1,11 @@
+package com.chatapp.model;
+
+public enum OutboxEventType {
+    ACCOUNT_CREATED,
+    ACCOUNT_UPDATED,
+    PERSONAL_INFO_CHANGED,
+    EMAIL_CHANGED,
+    USERNAME_CHANGED,
+    PHOTO_CHANGED,
+    ACCOUNT_DELETED
+}
@@ -0,0 +1,7 @@
+package com.chatapp.model;
+
+public enum PhotoStatus {
+    PENDING,
+    READY,
+    FAILED
+}
@@ -0,0 +1,28 @@
+package com.chatapp.model;
+
+import com.chatapp.exception.InvalidPresenceStatusException;
+
+public enum PresenceStatus {
+    ONLINE("online"),
+    AWAY("away"),
+    OFFLINE("offline");
+
+    private final String value;
+
+    PresenceStatus(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static PresenceStatus of(String value) {
+        for (PresenceStatus status : values()) {
+            if (status.value.equals(value)) {
+                return status;
+            }
+        }
+        throw new InvalidPresenceStatusException(value);
+    }
+}
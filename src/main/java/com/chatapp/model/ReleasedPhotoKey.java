@@ -0,0 +1,29 @@
+package com.chatapp.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.OffsetDateTime;
+
+// a photo key some row stopped pointing at; the purger deletes its blobs once no row references it any more
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "released_photo_key")
+public class ReleasedPhotoKey {
+  @Id private String photoKey;
+
+  @Column(nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime releasedAt;
+
+  public ReleasedPhotoKey(String photoKey, OffsetDateTime releasedAt) {
+    this.photoKey = photoKey;
+    this.releasedAt = releasedAt;
+  }
+}
@@ -1,12 +1,16 @@
 package com.chatapp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.hibernate.Hibernate;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.time.OffsetDateTime;
 
 @NoArgsConstructor
@@ -42,6 +46,28 @@ public class UserAccount {
 
   private String photoUrl;
 
+  private String avatarUrl;
+
+  private String photoKey;
+
+  @Enumerated(EnumType.STRING)
+  private PhotoStatus photoStatus;
+
+  @Version
+  @Column(columnDefinition = "bigint default 0")
+  private Long version;
+
+  // stamped by the user_account change trigger, see UserAccountSchemaInitializer
+  @Column(insertable = false, updatable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime updatedAt;
+
+  @JsonIgnore
+  @Column(insertable = false, updatable = false)
+  private Long changeXid;
+
+  @Column(columnDefinition = "TIMESTAMP WITH TIME ZONE")
+  private OffsetDateTime deletedAt;
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
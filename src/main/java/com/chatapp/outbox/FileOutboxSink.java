@@ -0,0 +1,40 @@
+package com.chatapp.outbox;
+
+import com.chatapp.model.OutboxEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileOutboxSink(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(
+                    file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (OutboxEvent event : events) {
+                    writer.write(objectMapper.writeValueAsString(event));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.chatapp.outbox;
+
+import com.chatapp.model.OutboxEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+public class InProcessOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InProcessOutboxSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,65 @@
+package com.chatapp.outbox;
+
+import com.chatapp.model.OutboxEvent;
+import com.chatapp.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxEventRepository repository;
+    private final OutboxSink sink;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final Counter published;
+
+    @Autowired
+    public OutboxRelay(
+            OutboxEventRepository repository,
+            OutboxSink sink,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${outbox.relay.batch-size}") int batchSize) {
+        this.repository = repository;
+        this.sink = sink;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.published = meterRegistry.counter("outbox.relay.published");
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval}")
+    public void relay() {
+        try {
+            Integer relayed;
+            do {
+                relayed = transaction.execute(status -> relayBatch());
+            } while (relayed != null && relayed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Could not relay outbox events, retrying with the next run", e);
+        }
+    }
+
+    // rows stay locked until the batch is deleted, so other instances skip them instead of publishing twice;
+    // a failed publish rolls back and the batch is delivered again, which makes the relay at-least-once
+    private int relayBatch() {
+        List<OutboxEvent> events = repository.lockNextBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        sink.publish(events);
+        repository.deleteAllInBatch(events);
+        published.increment(events.size());
+        return events.size();
+    }
+}
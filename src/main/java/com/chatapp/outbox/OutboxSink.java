@@ -0,0 +1,9 @@
+package com.chatapp.outbox;
+
+import com.chatapp.model.OutboxEvent;
+
+import java.util.List;
+
+public interface OutboxSink {
+    void publish(List<OutboxEvent> events);
+}
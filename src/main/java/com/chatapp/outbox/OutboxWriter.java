@@ -0,0 +1,44 @@
+package com.chatapp.outbox;
+
+import com.chatapp.model.OutboxEvent;
+import com.chatapp.model.OutboxEventType;
+import com.chatapp.model.UserAccount;
+import com.chatapp.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+@Component
+public class OutboxWriter {
+
+    private final OutboxEventRepository repository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public OutboxWriter(OutboxEventRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    // the event must commit or roll back together with the mutation it describes
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(OutboxEventType type, UserAccount userAccount) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(userAccount);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize user account " + userAccount.getUid(), e);
+        }
+        repository.save(OutboxEvent.builder()
+                .aggregateId(userAccount.getUid())
+                .type(type)
+                .payload(payload)
+                .createdAt(OffsetDateTime.now())
+                .build());
+    }
+}
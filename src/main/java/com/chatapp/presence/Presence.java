@@ -0,0 +1,13 @@
+package com.chatapp.presence;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.OffsetDateTime;
+
+@AllArgsConstructor
+@Getter
+public class Presence {
+    private final String status;
+    private final OffsetDateTime lastActivity;
+}
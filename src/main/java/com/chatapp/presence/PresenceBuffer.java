@@ -0,0 +1,242 @@
+package com.chatapp.presence;
+
+import com.chatapp.cache.CacheInvalidationBus;
+import com.chatapp.cache.CacheInvalidationListener;
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.model.PresenceStatus;
+import com.chatapp.model.UserAccount;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Component
+public class PresenceBuffer {
+
+    static final String FLUSH_SQL = "update user_account set status = ?, last_activity = ?"
+            + " where uid = ? and (last_activity is null or last_activity <= ?)";
+    static final String SNAPSHOT_SQL = "select uid, status, last_activity from user_account"
+            + " where uid = any(?) and deleted_at is null";
+    static final String PRESENCE_TOPIC = "presence";
+    private static final String SEPARATOR = "|";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final Duration liveTtl;
+    private final Duration announceInterval;
+    private final ConcurrentMap<String, Presence> live = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Presence> dirty = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Presence> outgoing = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, OffsetDateTime> announced = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PresenceBuffer(
+            JdbcTemplate jdbcTemplate,
+            CacheInvalidationBus invalidationBus,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${presence.flush.batch-size}") int batchSize,
+            @Value("${presence.live-ttl}") Duration liveTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.liveTtl = liveTtl;
+        // other nodes expire what they have not heard about for a full TTL, so refresh them twice as often
+        this.announceInterval = liveTtl.dividedBy(2);
+        Gauge.builder("presence.buffer.live", live, Map::size).register(meterRegistry);
+        Gauge.builder("presence.buffer.dirty", dirty, Map::size).register(meterRegistry);
+        invalidationBus.subscribe(PRESENCE_TOPIC, new RemotePresence());
+    }
+
+    public void heartbeat(String uid, String status) {
+        Presence presence = new Presence(status, OffsetDateTime.now());
+        Presence previous = live.put(uid, presence);
+        dirty.put(uid, presence);
+        boolean changed = previous == null || !Objects.equals(previous.getStatus(), status);
+        if (changed) {
+            eventPublisher.publishEvent(new PresenceChangedEvent(uid, status, presence.getLastActivity()));
+        }
+        OffsetDateTime lastAnnounced = announced.get(uid);
+        if (changed || lastAnnounced == null
+                || lastAnnounced.isBefore(presence.getLastActivity().minus(announceInterval))) {
+            announced.put(uid, presence.getLastActivity());
+            outgoing.put(uid, presence);
+        }
+    }
+
+    public Optional<Presence> get(String uid) {
+        return Optional.ofNullable(live.get(uid));
+    }
+
+    public Map<String, Presence> snapshot(Collection<String> uids) {
+        Map<String, Presence> presences = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String uid : uids) {
+            Presence presence = live.get(uid);
+            if (presence != null) {
+                presences.put(uid, presence);
+            } else {
+                missing.add(uid);
+            }
+        }
+        if (!missing.isEmpty()) {
+            // nobody in the cluster has announced these recently, so the last flushed state is the best answer
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SNAPSHOT_SQL);
+                statement.setArray(1, connection.createArrayOf("text", missing.toArray()));
+                return statement;
+            }, (RowCallbackHandler) resultSet -> presences.put(resultSet.getString("uid"), new Presence(
+                    resultSet.getString("status"), resultSet.getObject("last_activity", OffsetDateTime.class))));
+        }
+        return presences;
+    }
+
+    public UserAccount overlay(UserAccount userAccount) {
+        Presence presence = live.get(userAccount.getUid());
+        if (presence == null) {
+            return userAccount;
+        }
+        return userAccount.toBuilder()
+                .status(presence.getStatus())
+                .lastActivity(presence.getLastActivity())
+                .build();
+    }
+
+    public ContactDTO overlay(ContactDTO contact) {
+        Presence presence = live.get(contact.getId());
+        if (presence != null) {
+            contact.setStatus(presence.getStatus());
+            contact.setLastActivity(presence.getLastActivity());
+        }
+        return contact;
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${presence.flush.interval}")
+    public void flush() {
+        announce();
+
+        List<Map.Entry<String, Presence>> batch = new ArrayList<>();
+        for (Map.Entry<String, Presence> entry : dirty.entrySet()) {
+            // a heartbeat that lands after this point stays dirty and goes out with the next flush
+            if (dirty.remove(entry.getKey(), entry.getValue())) {
+                batch.add(new SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (!batch.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batch, batchSize, (statement, entry) -> {
+                    statement.setString(1, entry.getValue().getStatus());
+                    statement.setObject(2, entry.getValue().getLastActivity());
+                    statement.setString(3, entry.getKey());
+                    statement.setObject(4, entry.getValue().getLastActivity());
+                });
+            } catch (DataAccessException e) {
+                log.warn("Could not flush {} presence updates, retrying with the next flush", batch.size(), e);
+                batch.forEach(entry -> dirty.putIfAbsent(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        expire(OffsetDateTime.now().minus(liveTtl));
+    }
+
+    private void announce() {
+        Map<String, Presence> batch = new HashMap<>();
+        for (Map.Entry<String, Presence> entry : outgoing.entrySet()) {
+            if (outgoing.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<String> messages = new ArrayList<>(batch.size());
+        batch.forEach((uid, presence) -> messages.add(
+                presence.getStatus() + SEPARATOR + presence.getLastActivity() + SEPARATOR + uid));
+        try {
+            invalidationBus.publish(PRESENCE_TOPIC, messages);
+        } catch (DataAccessException e) {
+            log.warn("Could not announce {} presence updates, retrying with the next flush", batch.size(), e);
+            batch.forEach(outgoing::putIfAbsent);
+        }
+    }
+
+    private void applyRemote(String uid, Presence presence) {
+        Presence[] previous = new Presence[1];
+        Presence current = live.compute(uid, (key, existing) -> {
+            previous[0] = existing;
+            // our own announcements come back too, and announcements may arrive out of order
+            return existing == null || existing.getLastActivity().isBefore(presence.getLastActivity())
+                    ? presence
+                    : existing;
+        });
+        boolean changed = previous[0] == null || !Objects.equals(previous[0].getStatus(), presence.getStatus());
+        if (current == presence && changed) {
+            eventPublisher.publishEvent(
+                    new PresenceChangedEvent(uid, presence.getStatus(), presence.getLastActivity()));
+        }
+    }
+
+    private void expire(OffsetDateTime expiredBefore) {
+        String offline = PresenceStatus.OFFLINE.getValue();
+        for (Map.Entry<String, Presence> entry : live.entrySet()) {
+            String uid = entry.getKey();
+            Presence presence = entry.getValue();
+            if (!presence.getLastActivity().isBefore(expiredBefore) || dirty.containsKey(uid)
+                    || !live.remove(uid, presence)) {
+                continue;
+            }
+            announced.remove(uid);
+            if (offline.equals(presence.getStatus())) {
+                continue;
+            }
+            // the client stopped sending heartbeats without saying goodbye; keep the row from showing it online forever
+            dirty.putIfAbsent(uid, new Presence(offline, presence.getLastActivity()));
+            eventPublisher.publishEvent(new PresenceChangedEvent(uid, offline, presence.getLastActivity()));
+        }
+    }
+
+    private class RemotePresence implements CacheInvalidationListener {
+        @Override
+        public void invalidate(String message) {
+            String[] parts = message.split(Pattern.quote(SEPARATOR), 3);
+            if (parts.length != 3) {
+                log.debug("Ignoring malformed presence announcement {}", message);
+                return;
+            }
+            applyRemote(parts[2], new Presence(parts[0], OffsetDateTime.parse(parts[1])));
+        }
+
+        @Override
+        public void invalidateAll() {
+            // missed announcements are repaired by the periodic refreshes and by expiry
+        }
+    }
+}
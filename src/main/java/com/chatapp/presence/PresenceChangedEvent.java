@@ -0,0 +1,14 @@
+package com.chatapp.presence;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.OffsetDateTime;
+
+@AllArgsConstructor
+@Getter
+public class PresenceChangedEvent {
+    private final String uid;
+    private final String status;
+    private final OffsetDateTime lastActivity;
+}
@@ -0,0 +1,231 @@
+package com.chatapp.presence;
+
+import com.chatapp.exception.BatchLimitExceededException;
+import com.chatapp.exception.InvalidUidsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class PresenceHub {
+
+    private final PresenceBuffer presenceBuffer;
+    private final int maxUids;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final long sendTimeoutMillis;
+    private final ExecutorService dispatcher;
+    private final Counter droppedSubscribers;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Set<Subscriber>> subscribersByUid = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PresenceHub(
+            PresenceBuffer presenceBuffer,
+            MeterRegistry meterRegistry,
+            @Value("${presence.stream.max-uids}") int maxUids,
+            @Value("${presence.stream.queue-capacity}") int queueCapacity,
+            @Value("${presence.stream.timeout}") Duration timeout,
+            @Value("${presence.stream.send-timeout}") Duration sendTimeout,
+            @Value("${presence.stream.dispatcher-threads}") int dispatcherThreads) {
+        this(presenceBuffer, meterRegistry, maxUids, queueCapacity, timeout, sendTimeout,
+                newDispatcher(dispatcherThreads));
+    }
+
+    PresenceHub(
+            PresenceBuffer presenceBuffer,
+            MeterRegistry meterRegistry,
+            int maxUids,
+            int queueCapacity,
+            Duration timeout,
+            Duration sendTimeout,
+            ExecutorService dispatcher) {
+        this.presenceBuffer = presenceBuffer;
+        this.maxUids = maxUids;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutMillis = sendTimeout.toMillis();
+        this.dispatcher = dispatcher;
+        this.droppedSubscribers = Counter.builder("presence.stream.dropped")
+                .description("Subscribers disconnected because they fell too far behind")
+                .register(meterRegistry);
+        Gauge.builder("presence.stream.subscribers", subscribers, Set::size).register(meterRegistry);
+    }
+
+    private static ExecutorService newDispatcher(int dispatcherThreads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "presence-dispatcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe(Collection<String> uids) {
+        if (uids.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidUidsException();
+        }
+        if (uids.size() > maxUids) {
+            throw new BatchLimitExceededException("uids", maxUids);
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis), Set.copyOf(uids), queueCapacity);
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(e -> remove(subscriber));
+
+        subscribers.add(subscriber);
+        for (String uid : subscriber.uids) {
+            subscribersByUid.compute(uid, (key, uidSubscribers) -> {
+                Set<Subscriber> updated = uidSubscribers == null ? ConcurrentHashMap.newKeySet() : uidSubscribers;
+                updated.add(subscriber);
+                return updated;
+            });
+        }
+        // one event for the whole snapshot, so watching more uids than the queue holds does not overflow it
+        List<PresenceChangedEvent> snapshot = presenceBuffer.snapshot(subscriber.uids).entrySet().stream()
+                .map(entry -> new PresenceChangedEvent(
+                        entry.getKey(), entry.getValue().getStatus(), entry.getValue().getLastActivity()))
+                .collect(Collectors.toList());
+        enqueue(subscriber, SseEmitter.event().name("snapshot").data(snapshot, MediaType.APPLICATION_JSON));
+        return subscriber.emitter;
+    }
+
+    @EventListener
+    public void onPresenceChanged(PresenceChangedEvent event) {
+        Set<Subscriber> uidSubscribers = subscribersByUid.get(event.getUid());
+        if (uidSubscribers != null) {
+            uidSubscribers.forEach(subscriber -> enqueue(subscriber, presenceEvent(event)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${presence.stream.keepalive-interval}")
+    public void keepAlive() {
+        subscribers.forEach(subscriber -> enqueue(subscriber, SseEmitter.event().comment("keepalive")));
+    }
+
+    // a send blocks while the client does not read; completing the response closes the connection, which fails the
+    // blocked write and frees the dispatcher thread for the other subscribers
+    @Scheduled(fixedDelayString = "${presence.stream.send-timeout}")
+    public void dropStuckSubscribers() {
+        long now = System.currentTimeMillis();
+        subscribers.forEach(subscriber -> {
+            long sendStartedAt = subscriber.sendStartedAt;
+            if (sendStartedAt != 0 && now - sendStartedAt > sendTimeoutMillis) {
+                drop(subscriber);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        dispatcher.shutdown();
+    }
+
+    private static SseEmitter.SseEventBuilder presenceEvent(PresenceChangedEvent event) {
+        return SseEmitter.event().name("presence").data(event, MediaType.APPLICATION_JSON);
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (!subscriber.queue.offer(event)) {
+            // the client reconnects and gets a fresh snapshot instead of a backlog it cannot keep up with
+            drop(subscriber);
+            return;
+        }
+        schedule(subscriber);
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            droppedSubscribers.increment();
+        }
+        subscriber.queue.clear();
+        subscriber.emitter.complete();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.queue.poll()) != null) {
+                subscriber.sendStartedAt = System.currentTimeMillis();
+                subscriber.emitter.send(event);
+                subscriber.sendStartedAt = 0;
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping presence subscriber after a failed send", e);
+            remove(subscriber);
+            subscriber.queue.clear();
+            return;
+        } finally {
+            subscriber.sendStartedAt = 0;
+            subscriber.scheduled.set(false);
+        }
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return false;
+        }
+        for (String uid : subscriber.uids) {
+            subscribersByUid.computeIfPresent(uid, (key, uidSubscribers) -> {
+                uidSubscribers.remove(subscriber);
+                return uidSubscribers.isEmpty() ? null : uidSubscribers;
+            });
+        }
+        return true;
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> uids;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long sendStartedAt;
+
+        private Subscriber(SseEmitter emitter, Set<String> uids, int queueCapacity) {
+            this.emitter = emitter;
+            this.uids = uids;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.chatapp.purge;
+
+import com.chatapp.firebase.FirebaseSyncQueue;
+import com.chatapp.model.ReleasedPhotoKey;
+import com.chatapp.model.UserAccount;
+import com.chatapp.repository.ReleasedPhotoKeyRepository;
+import com.chatapp.repository.UserAccountRepository;
+import com.chatapp.storage.PhotoStorage;
+import com.chatapp.storage.ProfilePhotoProcessor;
+import com.chatapp.storage.ProfilePhotoUploader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Component
+public class AccountPurger {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final UserAccountRepository repository;
+    private final ReleasedPhotoKeyRepository releasedPhotoKeyRepository;
+    private final PhotoStorage photoStorage;
+    private final ProfilePhotoUploader profilePhotoUploader;
+    private final FirebaseSyncQueue firebaseSyncQueue;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final Duration gracePeriod;
+    private final Duration pause;
+    private final ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter purged;
+
+    @Autowired
+    public AccountPurger(
+            UserAccountRepository repository,
+            ReleasedPhotoKeyRepository releasedPhotoKeyRepository,
+            PhotoStorage photoStorage,
+            ProfilePhotoUploader profilePhotoUploader,
+            FirebaseSyncQueue firebaseSyncQueue,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${purge.batch-size}") int batchSize,
+            @Value("${purge.grace-period}") Duration gracePeriod,
+            @Value("${purge.pause}") Duration pause) {
+        this(repository, releasedPhotoKeyRepository, photoStorage, profilePhotoUploader, firebaseSyncQueue,
+                transactionManager, meterRegistry, batchSize, gracePeriod, pause,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "account-purger");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    AccountPurger(
+            UserAccountRepository repository,
+            ReleasedPhotoKeyRepository releasedPhotoKeyRepository,
+            PhotoStorage photoStorage,
+            ProfilePhotoUploader profilePhotoUploader,
+            FirebaseSyncQueue firebaseSyncQueue,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            int batchSize,
+            Duration gracePeriod,
+            Duration pause,
+            ExecutorService executor) {
+        this.repository = repository;
+        this.releasedPhotoKeyRepository = releasedPhotoKeyRepository;
+        this.photoStorage = photoStorage;
+        this.profilePhotoUploader = profilePhotoUploader;
+        this.firebaseSyncQueue = firebaseSyncQueue;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.gracePeriod = gracePeriod;
+        this.pause = pause;
+        this.executor = executor;
+        this.purged = meterRegistry.counter("purge.accounts");
+    }
+
+    // the batch is paced with sleeps, so it runs on its own thread instead of holding a shared scheduler thread
+    @Scheduled(fixedDelayString = "${purge.interval}")
+    public void purge() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    purgeBatch();
+                    collectReleasedPhotos();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down; whatever is left is picked up after the restart
+            running.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Account purge still running at shutdown, the rest is retried after the restart");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // one bounded batch per run, paced, so a wave of deletions is spread out instead of competing with requests
+    private void purgeBatch() throws InterruptedException {
+        List<UserAccount> batch;
+        try {
+            batch = repository.findDeletedBefore(OffsetDateTime.now().minus(gracePeriod), PageRequest.of(0, batchSize));
+        } catch (DataAccessException e) {
+            log.warn("Could not load deleted accounts, retrying with the next run", e);
+            return;
+        }
+        for (UserAccount userAccount : batch) {
+            try {
+                purge(userAccount);
+                purged.increment();
+            } catch (RuntimeException e) {
+                log.warn("Could not purge account {}, retrying with the next run", userAccount.getUid(), e);
+            }
+            Thread.sleep(pause.toMillis());
+        }
+    }
+
+    void purge(UserAccount userAccount) {
+        String uid = userAccount.getUid();
+        String photoKey = userAccount.getPhotoKey();
+        transaction.executeWithoutResult(status -> {
+            if (repository.purge(uid) > 0) {
+                // the blobs go with the released keys, keys of earlier uploads were released when they were replaced
+                if (photoKey != null) {
+                    releasedPhotoKeyRepository.release(photoKey);
+                }
+                firebaseSyncQueue.enqueueUserDeletion(uid);
+            }
+        });
+    }
+
+    private void collectReleasedPhotos() throws InterruptedException {
+        List<ReleasedPhotoKey> batch;
+        try {
+            batch = releasedPhotoKeyRepository.findOldest(PageRequest.of(0, batchSize));
+        } catch (DataAccessException e) {
+            log.warn("Could not load released photos, retrying with the next run", e);
+            return;
+        }
+        for (ReleasedPhotoKey releasedPhotoKey : batch) {
+            try {
+                collect(releasedPhotoKey.getPhotoKey());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not delete photo {}, retrying with the next run", releasedPhotoKey.getPhotoKey(), e);
+            }
+            Thread.sleep(pause.toMillis());
+        }
+    }
+
+    void collect(String photoKey) throws IOException {
+        try {
+            transaction.executeWithoutResult(status -> deletePhotoIfUnused(photoKey));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // photo keys are content hashes, so another account may have uploaded the same photo; uploads take the
+    // same lock before pointing a row at a key, so none can start referencing it between the check and the delete
+    private void deletePhotoIfUnused(String photoKey) {
+        repository.lockPhotoKey(photoKey);
+        if (!repository.existsByPhotoKey(photoKey)) {
+            try {
+                for (String objectName : ProfilePhotoProcessor.objectNames(photoKey)) {
+                    photoStorage.delete(objectName);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            profilePhotoUploader.forget(photoKey);
+        }
+        releasedPhotoKeyRepository.remove(photoKey);
+    }
+}
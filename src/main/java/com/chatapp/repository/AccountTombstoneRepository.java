@@ -0,0 +1,25 @@
+package com.chatapp.repository;
+
+import com.chatapp.model.AccountTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AccountTombstoneRepository extends JpaRepository<AccountTombstone, String> {
+
+    // same bytewise uid order as UserAccountRepository#findChangedSince, the two are merged into one feed
+    @Query(value = "select t.* from account_tombstone t"
+            + " where (t.change_xid > :xid or (t.change_xid = :xid and t.uid collate \"C\" > :uid))"
+            + " and t.change_xid < :settledXid"
+            + " order by t.change_xid, t.uid collate \"C\"", nativeQuery = true)
+    List<AccountTombstone> findDeletedSince(
+            @Param("xid") long xid,
+            @Param("uid") String uid,
+            @Param("settledXid") long settledXid,
+            Pageable pageable);
+}
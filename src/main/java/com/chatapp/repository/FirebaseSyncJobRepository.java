@@ -0,0 +1,55 @@
+package com.chatapp.repository;
+
+import com.chatapp.model.FirebaseSyncJob;
+import com.chatapp.model.FirebaseSyncType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Repository
+public interface FirebaseSyncJobRepository extends JpaRepository<FirebaseSyncJob, Long> {
+
+    int UID_LOCK_CLASS = 1;
+
+    // only the newest job per uid and type is claimed; older ones are superseded and removed when it completes
+    @Transactional
+    @Query(value = "update firebase_sync_job set attempts = attempts + 1, next_attempt_at = :leaseUntil"
+            + " where id in (select j.id from firebase_sync_job j"
+            + " where j.next_attempt_at <= :now and j.attempts < :maxAttempts"
+            + " and not exists (select 1 from firebase_sync_job n where n.uid = j.uid and n.type = j.type and n.id > j.id)"
+            + " order by j.next_attempt_at limit :limit for update skip locked)"
+            + " returning *", nativeQuery = true)
+    List<FirebaseSyncJob> claim(
+            @Param("now") OffsetDateTime now,
+            @Param("leaseUntil") OffsetDateTime leaseUntil,
+            @Param("maxAttempts") int maxAttempts,
+            @Param("limit") int limit);
+
+    // held until the surrounding transaction ends; the count only gives the void lock function a result type
+    @Query(value = "select count(*) from (select pg_advisory_xact_lock(" + UID_LOCK_CLASS + ", hashtext(:uid))) l",
+            nativeQuery = true)
+    long lockUid(@Param("uid") String uid);
+
+    boolean existsByUidAndTypeAndIdGreaterThan(String uid, FirebaseSyncType type, Long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from FirebaseSyncJob j where j.uid = :uid and j.type = :type and j.id <= :id")
+    int deleteCompleted(@Param("uid") String uid, @Param("type") FirebaseSyncType type, @Param("id") long id);
+
+    @Transactional
+    @Modifying
+    @Query("update FirebaseSyncJob j set j.attempts = :attempts, j.nextAttemptAt = :nextAttemptAt,"
+            + " j.lastError = :error where j.id = :id")
+    int updateAfterFailure(
+            @Param("id") long id,
+            @Param("attempts") int attempts,
+            @Param("nextAttemptAt") OffsetDateTime nextAttemptAt,
+            @Param("error") String error);
+}
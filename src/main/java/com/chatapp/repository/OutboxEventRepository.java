@@ -0,0 +1,16 @@
+package com.chatapp.repository;
+
+import com.chatapp.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query(value = "select * from outbox_event order by id limit :limit for update skip locked", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+}
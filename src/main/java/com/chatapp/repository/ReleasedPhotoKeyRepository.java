@@ -0,0 +1,31 @@
+package com.chatapp.repository;
+
+import com.chatapp.model.ReleasedPhotoKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface ReleasedPhotoKeyRepository extends JpaRepository<ReleasedPhotoKey, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "insert into released_photo_key (photo_key, released_at) values (:photoKey, now())"
+            + " on conflict do nothing", nativeQuery = true)
+    int release(@Param("photoKey") String photoKey);
+
+    @Query("select r from ReleasedPhotoKey r order by r.releasedAt")
+    List<ReleasedPhotoKey> findOldest(Pageable pageable);
+
+    // a bulk delete rather than deleteById, another node may have collected the key first
+    @Transactional
+    @Modifying
+    @Query("delete from ReleasedPhotoKey r where r.photoKey = :photoKey")
+    int remove(@Param("photoKey") String photoKey);
+}
@@ -1,14 +1,167 @@
 package com.chatapp.repository;
 
+import com.chatapp.dto.ContactDTO;
 import com.chatapp.model.UserAccount;
-import org.springframework.data.domain.Page;
+import com.chatapp.model.UserPersonalInfo;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface UserAccountRepository extends JpaRepository<UserAccount, String> {
+    String SET_ACCOUNT = "set email = :#{#account.email}, username = :#{#account.username},"
+            + " first_name = :#{#account.firstName}, last_name = :#{#account.lastName},"
+            + " address = :#{#account.address}, city = :#{#account.city}, state = :#{#account.state},"
+            + " country = :#{#account.country}, zip_code = :#{#account.zipCode}, status = :#{#account.status},"
+            + " last_activity = :#{#account.lastActivity}, phone_number = :#{#account.phoneNumber},"
+            + " photo_url = :#{#account.photoUrl}, version = version + 1";
+    String SET_PERSONAL_INFO = "set first_name = :#{#info.firstName}, last_name = :#{#info.lastName},"
+            + " address = :#{#info.address}, city = :#{#info.city}, state = :#{#info.state},"
+            + " country = :#{#info.country}, zip_code = :#{#info.zipCode}, version = version + 1";
+    // advisory lock classes share one key space, see FirebaseSyncJobRepository.UID_LOCK_CLASS
+    int PHOTO_KEY_LOCK_CLASS = 2;
+
     Boolean existsUserAccountByUsername(String username);
     Boolean existsUserAccountByEmail(String email);
-    Page<UserAccount> searchByUsernameContainingIgnoreCase(String searchQuery, Pageable sortedByUsername);
+    Boolean existsByUidAndDeletedAtIsNull(String uid);
+    Boolean existsByPhotoKey(String photoKey);
+
+    // serializes pointing a row at a shared photo with the purger deleting it; held until the transaction ends
+    @Query(value = "select count(*) from (select pg_advisory_xact_lock(" + PHOTO_KEY_LOCK_CLASS
+            + ", hashtext(:photoKey))) l", nativeQuery = true)
+    long lockPhotoKey(@Param("photoKey") String photoKey);
+
+    @Query("select new com.chatapp.dto.ContactDTO(u.uid, u.email, u.username, u.firstName, u.lastName,"
+            + " u.address, u.phoneNumber, coalesce(u.avatarUrl, u.photoUrl), u.status, u.lastActivity)"
+            + " from UserAccount u where lower(u.username) like :pattern escape '\\'"
+            + " and u.username > :after and u.deletedAt is null order by u.username")
+    List<ContactDTO> searchContacts(
+            @Param("pattern") String pattern, @Param("after") String afterUsername, Pageable pageable);
+
+    @Query("select u.uid from UserAccount u where u.uid in :uids")
+    List<String> findExistingUids(@Param("uids") Collection<String> uids);
+
+    @Query("select u.username from UserAccount u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.email from UserAccount u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Transactional
+    @Query(value = "update user_account " + SET_ACCOUNT + " where uid = :uid and deleted_at is null returning *",
+            nativeQuery = true)
+    Optional<UserAccount> updateUserAccount(@Param("uid") String uid, @Param("account") UserAccount account);
+
+    @Transactional
+    @Query(value = "update user_account " + SET_ACCOUNT
+            + " where uid = :uid and version = :version and deleted_at is null returning *", nativeQuery = true)
+    Optional<UserAccount> updateUserAccount(
+            @Param("uid") String uid, @Param("account") UserAccount account, @Param("version") long version);
+
+    @Transactional
+    @Query(value = "update user_account set email = :email, version = version + 1"
+            + " where uid = :uid and deleted_at is null returning *", nativeQuery = true)
+    Optional<UserAccount> updateEmail(@Param("uid") String uid, @Param("email") String email);
+
+    @Transactional
+    @Query(value = "update user_account set username = :username, version = version + 1"
+            + " where uid = :uid and deleted_at is null returning *", nativeQuery = true)
+    Optional<UserAccount> updateUsername(@Param("uid") String uid, @Param("username") String username);
+
+    @Transactional
+    @Query(value = "update user_account " + SET_PERSONAL_INFO + " where uid = :uid and deleted_at is null returning *",
+            nativeQuery = true)
+    Optional<UserAccount> updatePersonalInfo(@Param("uid") String uid, @Param("info") UserPersonalInfo info);
+
+    @Transactional
+    @Query(value = "update user_account " + SET_PERSONAL_INFO
+            + " where uid = :uid and version = :version and deleted_at is null returning *", nativeQuery = true)
+    Optional<UserAccount> updatePersonalInfo(
+            @Param("uid") String uid, @Param("info") UserPersonalInfo info, @Param("version") long version);
+
+    @Transactional
+    // the key being replaced is released in the same statement, so an upload can never leak the previous photo
+    @Query(value = "with previous as (select photo_key from user_account"
+            + " where uid = :uid and deleted_at is null for update),"
+            + " released as (insert into released_photo_key (photo_key, released_at)"
+            + " select photo_key, now() from previous where photo_key is not null and photo_key <> :photoKey"
+            + " on conflict do nothing)"
+            + " update user_account set photo_key = :photoKey, photo_status = 'PENDING', version = version + 1"
+            + " where uid = :uid and deleted_at is null returning *", nativeQuery = true)
+    Optional<UserAccount> updatePhotoPending(@Param("uid") String uid, @Param("photoKey") String photoKey);
+
+    // updated_at is stamped when the photo was marked pending, later edits only postpone the sweep
+    @Query("select u from UserAccount u where u.photoStatus = com.chatapp.model.PhotoStatus.PENDING"
+            + " and u.updatedAt < :before and u.deletedAt is null order by u.updatedAt")
+    List<UserAccount> findPhotoPendingBefore(@Param("before") OffsetDateTime before, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update UserAccount u set u.photoStatus = com.chatapp.model.PhotoStatus.READY,"
+            + " u.photoUrl = :photoUrl, u.avatarUrl = :avatarUrl, u.version = u.version + 1"
+            + " where u.uid = :uid and u.photoKey = :photoKey and u.deletedAt is null")
+    int updatePhotoReady(
+            @Param("uid") String uid,
+            @Param("photoKey") String photoKey,
+            @Param("photoUrl") String photoUrl,
+            @Param("avatarUrl") String avatarUrl);
+
+    @Transactional
+    @Modifying
+    @Query("update UserAccount u set u.photoStatus = com.chatapp.model.PhotoStatus.FAILED, u.version = u.version + 1"
+            + " where u.uid = :uid and u.photoKey = :photoKey and u.deletedAt is null")
+    int updatePhotoFailed(@Param("uid") String uid, @Param("photoKey") String photoKey);
+
+    // rows last written before the change trigger existed have no xid and sort first; uids compare bytewise
+    // so the order matches ChangeCursor whatever the database collation is
+    @Query(value = "select u.* from user_account u"
+            + " where (coalesce(u.change_xid, 0) > :xid"
+            + " or (coalesce(u.change_xid, 0) = :xid and u.uid collate \"C\" > :uid))"
+            + " and coalesce(u.change_xid, 0) < :settledXid and u.deleted_at is null"
+            + " order by coalesce(u.change_xid, 0), u.uid collate \"C\"", nativeQuery = true)
+    List<UserAccount> findChangedSince(
+            @Param("xid") long xid,
+            @Param("uid") String uid,
+            @Param("settledXid") long settledXid,
+            Pageable pageable);
+
+    // every transaction with a lower id has committed or rolled back, so its changes are final
+    @Query(value = "select txid_snapshot_xmin(txid_current_snapshot())", nativeQuery = true)
+    long findSettledXid();
+
+    @Query("select u from UserAccount u where u.deletedAt is null")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<UserAccount> streamAll();
+
+    @Transactional
+    @Query(value = "update user_account set deleted_at = clock_timestamp(), version = version + 1"
+            + " where uid = :uid and deleted_at is null returning *", nativeQuery = true)
+    Optional<UserAccount> markDeleted(@Param("uid") String uid);
+
+    @Query("select u from UserAccount u where u.deletedAt < :before order by u.deletedAt")
+    List<UserAccount> findDeletedBefore(@Param("before") OffsetDateTime before, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserAccount u where u.uid = :uid and u.deletedAt is not null")
+    int purge(@Param("uid") String uid);
+
+    @Query("select u.username, u.email from UserAccount u")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Object[]> streamUsernamesAndEmails();
 }
@@ -0,0 +1,98 @@
+package com.chatapp.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+@Slf4j
+@Component
+public class UserAccountSchemaInitializer {
+
+    // the changes feed pages by the id of the writing transaction, stamped here so no write path can forget it;
+    // presence flushes do not bump the version and so do not count as changes
+    private static final String[] POSTGRES_STATEMENTS = {
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE OR REPLACE FUNCTION stamp_user_account_change() RETURNS trigger AS $$"
+                    + " BEGIN NEW.change_xid := txid_current(); NEW.updated_at := clock_timestamp(); RETURN NEW; END"
+                    + " $$ LANGUAGE plpgsql",
+            "CREATE OR REPLACE FUNCTION stamp_account_tombstone_change() RETURNS trigger AS $$"
+                    + " BEGIN NEW.change_xid := txid_current(); RETURN NEW; END"
+                    + " $$ LANGUAGE plpgsql",
+            "DO $$ BEGIN IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = 'trg_user_account_change') THEN"
+                    + " CREATE TRIGGER trg_user_account_change BEFORE INSERT OR UPDATE OF version ON user_account"
+                    + " FOR EACH ROW EXECUTE PROCEDURE stamp_user_account_change(); END IF; END $$",
+            "DO $$ BEGIN IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = 'trg_account_tombstone_change') THEN"
+                    + " CREATE TRIGGER trg_account_tombstone_change BEFORE INSERT OR UPDATE ON account_tombstone"
+                    + " FOR EACH ROW EXECUTE PROCEDURE stamp_account_tombstone_change(); END IF; END $$"
+    };
+
+    // built CONCURRENTLY so that starting a new version never blocks writes to a large table
+    private static final String[][] POSTGRES_INDEXES = {
+            {"idx_user_account_username_trgm", "user_account USING gin (lower(username) gin_trgm_ops)"},
+            {"idx_user_account_change_cursor", "user_account ((coalesce(change_xid, 0)), uid COLLATE \"C\")"},
+            {"idx_account_tombstone_change_cursor", "account_tombstone (change_xid, uid COLLATE \"C\")"},
+            {"idx_firebase_sync_job_uid", "firebase_sync_job (uid, type, id)"},
+            {"idx_firebase_sync_job_next_attempt", "firebase_sync_job (next_attempt_at)"},
+            {"idx_user_account_deleted_at", "user_account (deleted_at) WHERE deleted_at IS NOT NULL"},
+            {"idx_user_account_photo_key", "user_account (photo_key)"},
+            {"idx_user_account_photo_pending", "user_account (updated_at) WHERE photo_status = 'PENDING'"},
+            {"idx_released_photo_key_released_at", "released_photo_key (released_at)"}
+    };
+
+    private static final String INVALID_INDEX_SQL = "SELECT count(*) FROM pg_index i"
+            + " JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ? AND NOT i.indisvalid";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public UserAccountSchemaInitializer(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() throws MetaDataAccessException {
+        String databaseProduct = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        if ("PostgreSQL".equals(databaseProduct)) {
+            execute(POSTGRES_STATEMENTS);
+            createIndexes(POSTGRES_INDEXES);
+        }
+    }
+
+    private void execute(String[] statements) {
+        for (String statement : statements) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                log.warn("Could not apply schema statement: {}", statement, e);
+            }
+        }
+    }
+
+    private void createIndexes(String[][] indexes) {
+        // the data source hands out auto-commit connections, and CONCURRENTLY must run outside a transaction
+        for (String[] index : indexes) {
+            String name = index[0];
+            try {
+                // an interrupted concurrent build leaves an invalid index that IF NOT EXISTS would keep forever
+                Integer invalid = jdbcTemplate.queryForObject(INVALID_INDEX_SQL, Integer.class, name);
+                if (invalid != null && invalid > 0) {
+                    jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+                }
+                jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + index[1]);
+            } catch (DataAccessException e) {
+                log.warn("Could not create index {}", name, e);
+            }
+        }
+    }
+}
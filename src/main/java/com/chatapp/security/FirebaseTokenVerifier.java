@@ -0,0 +1,28 @@
+package com.chatapp.security;
+
+import com.chatapp.exception.InvalidTokenException;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
+
+import java.time.Instant;
+
+public class FirebaseTokenVerifier implements TokenVerifier {
+
+    private final FirebaseAuth firebaseAuth;
+
+    public FirebaseTokenVerifier(FirebaseAuth firebaseAuth) {
+        this.firebaseAuth = firebaseAuth;
+    }
+
+    @Override
+    public VerifiedToken verify(String idToken) {
+        try {
+            FirebaseToken firebaseToken = firebaseAuth.verifyIdToken(idToken);
+            Number exp = (Number) firebaseToken.getClaims().get("exp");
+            return new VerifiedToken(firebaseToken.getUid(), Instant.ofEpochSecond(exp.longValue()));
+        } catch (FirebaseAuthException | IllegalArgumentException e) {
+            throw new InvalidTokenException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.chatapp.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+@Component
+public class FirebaseUidArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    public FirebaseUidArgumentResolver(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(FirebaseUid.class)
+                && String.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(
+            MethodParameter parameter,
+            ModelAndViewContainer mavContainer,
+            NativeWebRequest webRequest,
+            WebDataBinderFactory binderFactory) throws Exception {
+        String idToken = getBearerToken(webRequest.getHeader(HttpHeaders.AUTHORIZATION));
+        return verifiedTokenCache.verify(idToken).getUid();
+    }
+
+    private String getBearerToken(String authHeader) {
+        String bearerToken = "";
+        if (StringUtils.hasText(authHeader) && authHeader.startsWith("Bearer ")) {
+            bearerToken = authHeader.substring(7);
+        }
+        return bearerToken;
+    }
+}
@@ -0,0 +1,125 @@
+package com.chatapp.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+public class GooglePublicKeySet {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+    private static final Duration MIN_REFRESH_DELAY = Duration.ofSeconds(30);
+
+    private final String url;
+    private final Duration defaultRefreshInterval;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "google-public-key-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+
+    public GooglePublicKeySet(String url, Duration defaultRefreshInterval) {
+        this.url = url;
+        this.defaultRefreshInterval = defaultRefreshInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduleRefresh(refresh());
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public PublicKey getKey(String kid) {
+        return keys.get(kid);
+    }
+
+    public Duration refresh() {
+        try {
+            URLConnection connection = new URL(url).openConnection();
+            Map<String, PublicKey> refreshedKeys;
+            try (InputStream inputStream = connection.getInputStream()) {
+                refreshedKeys = parseKeys(objectMapper.readTree(inputStream));
+            }
+            if (refreshedKeys.isEmpty()) {
+                throw new GeneralSecurityException("no RSA keys in the key set");
+            }
+            keys = refreshedKeys;
+            return refreshDelay(connection.getHeaderField("Cache-Control"));
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            log.warn("Could not refresh public keys from {}, keeping {} cached keys", url, keys.size(), e);
+            return RETRY_DELAY;
+        }
+    }
+
+    // the next refresh is scheduled whatever happens, an ended chain would keep serving keys that rotated away
+    private void scheduleRefresh(Duration delay) {
+        scheduler.schedule(() -> {
+            Duration next = RETRY_DELAY;
+            try {
+                next = refresh();
+            } finally {
+                if (!scheduler.isShutdown()) {
+                    scheduleRefresh(next);
+                }
+            }
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Duration refreshDelay(String cacheControl) {
+        if (cacheControl == null) {
+            return defaultRefreshInterval;
+        }
+        Matcher matcher = MAX_AGE.matcher(cacheControl);
+        if (!matcher.find()) {
+            return defaultRefreshInterval;
+        }
+        Duration maxAge = Duration.ofSeconds(Long.parseLong(matcher.group(1)));
+        Duration beforeExpiry = maxAge.minus(maxAge.dividedBy(10));
+        return beforeExpiry.compareTo(MIN_REFRESH_DELAY) < 0 ? MIN_REFRESH_DELAY : beforeExpiry;
+    }
+
+    private static Map<String, PublicKey> parseKeys(JsonNode jwks) throws GeneralSecurityException {
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        Map<String, PublicKey> parsedKeys = new HashMap<>();
+        for (JsonNode jwk : jwks.path("keys")) {
+            if (!"RSA".equals(jwk.path("kty").asText())) {
+                continue;
+            }
+            BigInteger modulus = new BigInteger(1, decoder.decode(jwk.path("n").asText()));
+            BigInteger exponent = new BigInteger(1, decoder.decode(jwk.path("e").asText()));
+            parsedKeys.put(jwk.path("kid").asText(), keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+        }
+        return Collections.unmodifiableMap(parsedKeys);
+    }
+}
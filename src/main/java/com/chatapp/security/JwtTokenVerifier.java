@@ -0,0 +1,169 @@
+package com.chatapp.security;
+
+import com.chatapp.exception.InvalidTokenException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+public class JwtTokenVerifier implements TokenVerifier {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ThreadLocal<Signature> SHA256_WITH_RSA = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withRSA");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final GooglePublicKeySet publicKeySet;
+    private final String projectId;
+    private final String issuer;
+    private final long clockSkewSeconds;
+    private final Clock clock;
+
+    public JwtTokenVerifier(GooglePublicKeySet publicKeySet, String projectId, Duration clockSkew, Clock clock) {
+        this.publicKeySet = publicKeySet;
+        this.projectId = projectId;
+        this.issuer = "https://securetoken.google.com/" + projectId;
+        this.clockSkewSeconds = clockSkew.getSeconds();
+        this.clock = clock;
+    }
+
+    @Override
+    public VerifiedToken verify(String idToken) {
+        if (idToken == null || idToken.isEmpty()) {
+            throw new InvalidTokenException("token must not be empty");
+        }
+        int headerEnd = idToken.indexOf('.');
+        int payloadEnd = idToken.indexOf('.', headerEnd + 1);
+        if (headerEnd < 0 || payloadEnd < 0 || idToken.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new InvalidTokenException("token is not a JWT");
+        }
+
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        try {
+            String kid = readKeyId(decoder.decode(idToken.substring(0, headerEnd)));
+            PublicKey publicKey = publicKeySet.getKey(kid);
+            if (publicKey == null) {
+                throw new InvalidTokenException("unknown key id " + kid);
+            }
+            byte[] signature = decoder.decode(idToken.substring(payloadEnd + 1));
+            if (!verifySignature(publicKey, idToken.substring(0, payloadEnd), signature)) {
+                throw new InvalidTokenException("signature does not match");
+            }
+            Claims claims = readClaims(decoder.decode(idToken.substring(headerEnd + 1, payloadEnd)));
+            checkClaims(claims);
+            return new VerifiedToken(claims.subject, Instant.ofEpochSecond(claims.expiresAt));
+        } catch (IllegalArgumentException | IOException | GeneralSecurityException e) {
+            throw new InvalidTokenException("token is malformed", e);
+        }
+    }
+
+    private boolean verifySignature(PublicKey publicKey, String signedContent, byte[] signature)
+            throws GeneralSecurityException {
+        Signature verifier = SHA256_WITH_RSA.get();
+        verifier.initVerify(publicKey);
+        verifier.update(signedContent.getBytes(StandardCharsets.US_ASCII));
+        return verifier.verify(signature);
+    }
+
+    private void checkClaims(Claims claims) {
+        long now = clock.instant().getEpochSecond();
+        if (claims.expiresAt + clockSkewSeconds <= now) {
+            throw new InvalidTokenException("token has expired");
+        }
+        if (claims.issuedAt - clockSkewSeconds > now || claims.authTime - clockSkewSeconds > now) {
+            throw new InvalidTokenException("token is issued in the future");
+        }
+        if (!projectId.equals(claims.audience)) {
+            throw new InvalidTokenException("incorrect audience " + claims.audience);
+        }
+        if (!issuer.equals(claims.issuer)) {
+            throw new InvalidTokenException("incorrect issuer " + claims.issuer);
+        }
+        if (claims.subject == null || claims.subject.isEmpty() || claims.subject.length() > 128) {
+            throw new InvalidTokenException("incorrect subject");
+        }
+    }
+
+    private static String readKeyId(byte[] header) throws IOException {
+        String algorithm = null;
+        String kid = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(header)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidTokenException("header is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("alg".equals(field)) {
+                    algorithm = parser.getValueAsString();
+                } else if ("kid".equals(field)) {
+                    kid = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (!"RS256".equals(algorithm)) {
+            throw new InvalidTokenException("unsupported algorithm " + algorithm);
+        }
+        return kid;
+    }
+
+    private static Claims readClaims(byte[] payload) throws IOException {
+        Claims claims = new Claims();
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidTokenException("payload is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "exp":
+                        claims.expiresAt = parser.getValueAsLong();
+                        break;
+                    case "iat":
+                        claims.issuedAt = parser.getValueAsLong();
+                        break;
+                    case "auth_time":
+                        claims.authTime = parser.getValueAsLong();
+                        break;
+                    case "aud":
+                        claims.audience = parser.getValueAsString();
+                        break;
+                    case "iss":
+                        claims.issuer = parser.getValueAsString();
+                        break;
+                    case "sub":
+                        claims.subject = parser.getValueAsString();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        return claims;
+    }
+
+    private static class Claims {
+        private long expiresAt;
+        private long issuedAt;
+        private long authTime;
+        private String audience;
+        private String issuer;
+        private String subject;
+    }
+}
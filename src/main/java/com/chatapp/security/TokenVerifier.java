@@ -0,0 +1,7 @@
+package com.chatapp.security;
+
+import com.chatapp.exception.InvalidTokenException;
+
+public interface TokenVerifier {
+    VerifiedToken verify(String idToken) throws InvalidTokenException;
+}
@@ -0,0 +1,13 @@
+package com.chatapp.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@AllArgsConstructor
+@Getter
+public class VerifiedToken {
+    private final String uid;
+    private final Instant expiresAt;
+}
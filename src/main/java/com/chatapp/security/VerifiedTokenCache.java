@@ -0,0 +1,77 @@
+package com.chatapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+@Component
+public class VerifiedTokenCache {
+
+    private final TokenVerifier tokenVerifier;
+    private final Cache<String, VerifiedToken> cache;
+
+    @Autowired
+    public VerifiedTokenCache(
+            TokenVerifier tokenVerifier,
+            MeterRegistry meterRegistry,
+            @Value("${auth.token-cache.maximum-size}") long maximumSize) {
+        this.tokenVerifier = tokenVerifier;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpires())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "firebaseIdTokens");
+    }
+
+    public VerifiedToken verify(String idToken) {
+        String key = hash(idToken);
+        VerifiedToken verifiedToken = cache.getIfPresent(key);
+        if (verifiedToken != null) {
+            return verifiedToken;
+        }
+
+        verifiedToken = tokenVerifier.verify(idToken);
+        cache.put(key, verifiedToken);
+        return verifiedToken;
+    }
+
+    private static String hash(String idToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(idToken.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class UntilTokenExpires implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
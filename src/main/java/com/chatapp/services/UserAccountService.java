@@ -1,25 +1,41 @@
 package com.chatapp.services;
 
+import com.chatapp.dto.AvailabilityRequest;
+import com.chatapp.dto.AvailabilityResponse;
+import com.chatapp.dto.BatchLookupResponse;
+import com.chatapp.dto.ChangeCursor;
+import com.chatapp.dto.ChangesResponse;
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.dto.ImportReport;
+import com.chatapp.model.PresenceStatus;
 import com.chatapp.model.UserAccount;
 import com.chatapp.model.UserPersonalInfo;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.UserRecord.UpdateRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 public interface UserAccountService {
     UserAccount findUserAccount(String uid);
     ResponseEntity<UserAccount> addUserAccount(UserAccount newUserAccount);
-    ResponseEntity<UserAccount> updateUserAccount(UserAccount updatedUserAccount, String uid);
-    ResponseEntity<UserAccount> deleteUserAccount(String email);
-    ResponseEntity<UserAccount> updateUserPersonalInfo(UserPersonalInfo userPersonalInfo, String uid);
+    ImportReport importUserAccounts(InputStream input, MediaType contentType, String uid) throws IOException;
+    StreamingResponseBody exportUserAccounts(String uid);
+    ResponseEntity<UserAccount> updateUserAccount(UserAccount updatedUserAccount, String uid, Long expectedVersion);
+    ResponseEntity<UserAccount> deleteUserAccount(String uid);
+    ResponseEntity<UserAccount> updateUserPersonalInfo(UserPersonalInfo userPersonalInfo, String uid, Long expectedVersion);
     Boolean checkUsernameAvailability(String username);
     Boolean checkEmailAvailability(String email);
-    ResponseEntity<UserAccount> updateEmail(String newEmail, String uid, UpdateRequest request) throws FirebaseAuthException;
+    AvailabilityResponse checkAvailability(AvailabilityRequest request);
+    ResponseEntity<UserAccount> updateEmail(String newEmail, String uid);
     ResponseEntity<UserAccount> updateUsername(String newUsername, String uid);
     ResponseEntity<UserAccount> updateProfilePhoto(MultipartFile photo, String uid) throws IOException;
-    List<UserAccount> findUserAccounts(String searchQuery, String uid);
+    BatchLookupResponse findContactsByUid(List<String> uids);
+    void updatePresence(PresenceStatus status, String uid);
+    Slice<ContactDTO> findContacts(String searchQuery, String afterUsername, int size, String uid);
+    ChangesResponse findChanges(ChangeCursor since, int size);
 }
@@ -1,190 +1,478 @@
 package com.chatapp.services.implementation;
 
-import com.chatapp.exception.EmailExistsException;
+import com.chatapp.availability.AvailabilityIndex;
+import com.chatapp.availability.UsernameSuggester;
+import com.chatapp.bulk.UserAccountExporter;
+import com.chatapp.bulk.UserAccountImporter;
+import com.chatapp.cache.CacheInvalidationBus;
+import com.chatapp.config.CacheConfig;
+import com.chatapp.dto.AvailabilityRequest;
+import com.chatapp.dto.AvailabilityResponse;
+import com.chatapp.dto.AccountChange;
+import com.chatapp.dto.BatchLookupResponse;
+import com.chatapp.dto.ChangeCursor;
+import com.chatapp.dto.ChangesResponse;
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.dto.ImportReport;
+import com.chatapp.exception.BatchLimitExceededException;
+import com.chatapp.exception.BulkAccessNotAllowedException;
+import com.chatapp.exception.InvalidUidsException;
+import com.chatapp.exception.UserAccountExistsException;
+import com.chatapp.exception.UserAccountModifiedException;
 import com.chatapp.exception.UserAccountNotFoundException;
-import com.chatapp.exception.UsernameExistsException;
+import com.chatapp.firebase.FirebaseSyncQueue;
+import com.chatapp.mapper.UserAccountMapper;
+import com.chatapp.model.AccountTombstone;
+import com.chatapp.model.OutboxEventType;
+import com.chatapp.model.PhotoStatus;
+import com.chatapp.model.PresenceStatus;
 import com.chatapp.model.UserAccount;
 import com.chatapp.model.UserPersonalInfo;
+import com.chatapp.outbox.OutboxWriter;
+import com.chatapp.presence.PresenceBuffer;
+import com.chatapp.repository.AccountTombstoneRepository;
 import com.chatapp.repository.UserAccountRepository;
 import com.chatapp.services.UserAccountService;
-import com.google.cloud.storage.*;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.UserRecord.UpdateRequest;
-import com.google.firebase.cloud.StorageClient;
+import com.chatapp.storage.ProfilePhotoProcessedEvent;
+import com.chatapp.storage.ProfilePhotoProcessor;
+import com.chatapp.storage.ProfilePhotoUploader;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 public class UserAccountServiceImpl implements UserAccountService {
 
+  private static final int MAX_AVAILABILITY_CANDIDATES = 50;
+  private static final int MAX_USERNAME_SUGGESTIONS = 10;
+  private static final int MAX_SEARCH_PAGE_SIZE = 100;
+  private static final int MAX_BATCH_LOOKUP_UIDS = 500;
+  private static final int MAX_CHANGES_PAGE_SIZE = 1000;
+  private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
   private final UserAccountRepository repository;
-  private final StorageClient storageClient;
-  private final FirebaseAuth firebaseAuth;
+  private final AccountTombstoneRepository tombstoneRepository;
+  private final ProfilePhotoUploader profilePhotoUploader;
+  private final ProfilePhotoProcessor profilePhotoProcessor;
+  private final FirebaseSyncQueue firebaseSyncQueue;
+  private final CacheInvalidationBus invalidationBus;
+  private final AvailabilityIndex availabilityIndex;
+  private final UsernameSuggester usernameSuggester;
+  private final PresenceBuffer presenceBuffer;
+  private final UserAccountMapper userAccountMapper;
+  private final CacheManager cacheManager;
+  private final UserAccountImporter userAccountImporter;
+  private final UserAccountExporter userAccountExporter;
+  private final OutboxWriter outboxWriter;
+  private final TransactionTemplate transaction;
+  private final Set<String> bulkAllowedUids;
 
   @Autowired
-  public UserAccountServiceImpl(UserAccountRepository repository, StorageClient storageClient, FirebaseAuth firebaseAuth) {
+  public UserAccountServiceImpl(
+      UserAccountRepository repository,
+      AccountTombstoneRepository tombstoneRepository,
+      ProfilePhotoUploader profilePhotoUploader,
+      ProfilePhotoProcessor profilePhotoProcessor,
+      FirebaseSyncQueue firebaseSyncQueue,
+      CacheInvalidationBus invalidationBus,
+      AvailabilityIndex availabilityIndex,
+      UsernameSuggester usernameSuggester,
+      PresenceBuffer presenceBuffer,
+      UserAccountMapper userAccountMapper,
+      CacheManager cacheManager,
+      UserAccountImporter userAccountImporter,
+      UserAccountExporter userAccountExporter,
+      OutboxWriter outboxWriter,
+      PlatformTransactionManager transactionManager,
+      @Value("${bulk.allowed-uids}") Set<String> bulkAllowedUids) {
     this.repository = repository;
-    this.storageClient = storageClient;
-    this.firebaseAuth = firebaseAuth;
+    this.tombstoneRepository = tombstoneRepository;
+    this.profilePhotoUploader = profilePhotoUploader;
+    this.profilePhotoProcessor = profilePhotoProcessor;
+    this.firebaseSyncQueue = firebaseSyncQueue;
+    this.invalidationBus = invalidationBus;
+    this.availabilityIndex = availabilityIndex;
+    this.usernameSuggester = usernameSuggester;
+    this.presenceBuffer = presenceBuffer;
+    this.userAccountMapper = userAccountMapper;
+    this.cacheManager = cacheManager;
+    this.userAccountImporter = userAccountImporter;
+    this.userAccountExporter = userAccountExporter;
+    this.outboxWriter = outboxWriter;
+    this.transaction = new TransactionTemplate(transactionManager);
+    this.bulkAllowedUids = bulkAllowedUids;
   }
 
   @Override
   public UserAccount findUserAccount(String uid) {
+    // only the stored account is cached; the live presence is laid over it on every read
+    Cache cache = cacheManager.getCache(CacheConfig.USER_ACCOUNTS);
+    UserAccount userAccount;
+    try {
+      userAccount = cache == null ? loadUserAccount(uid) : cache.get(uid, () -> loadUserAccount(uid));
+    } catch (Cache.ValueRetrievalException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+    return presenceBuffer.overlay(userAccount);
+  }
+
+  private UserAccount loadUserAccount(String uid) {
     return repository
         .findById(uid)
+        .filter(userAccount -> userAccount.getDeletedAt() == null)
         .orElseThrow(() -> new UserAccountNotFoundException(uid));
   }
 
   @Override
+  @Transactional
   public ResponseEntity<UserAccount> addUserAccount(UserAccount newUserDetails) {
-    return null;
+    // soft-deleted accounts keep their row until purged, so they count as existing too
+    if (repository.existsById(newUserDetails.getUid())) {
+      throw new UserAccountExistsException(newUserDetails.getUid());
+    }
+    newUserDetails.setVersion(null);
+    newUserDetails.setDeletedAt(null);
+    UserAccount savedUserAccount = repository.save(newUserDetails);
+    outboxWriter.record(OutboxEventType.ACCOUNT_CREATED, savedUserAccount);
+    availabilityIndex.addUsername(savedUserAccount.getUsername());
+    availabilityIndex.addEmail(savedUserAccount.getEmail());
+
+    return ResponseEntity.status(201).eTag(String.valueOf(savedUserAccount.getVersion())).body(savedUserAccount);
   }
 
   @Override
-  public ResponseEntity<UserAccount> updateUserAccount(
-          UserAccount newUserDetails, String uid) {
-    UserAccount updatedUserAccount;
-    if (repository.existsById(uid)) {
-      updatedUserAccount = repository.save(newUserDetails);
-    } else {
-      throw new UserAccountNotFoundException(uid);
+  public ImportReport importUserAccounts(InputStream input, MediaType contentType, String uid) throws IOException {
+    checkBulkAccess(uid);
+    return CSV.isCompatibleWith(contentType)
+        ? userAccountImporter.importCsv(input)
+        : userAccountImporter.importNdjson(input);
+  }
+
+  @Override
+  public StreamingResponseBody exportUserAccounts(String uid) {
+    checkBulkAccess(uid);
+    return userAccountExporter::exportNdjson;
+  }
+
+  private void checkBulkAccess(String uid) {
+    if (!bulkAllowedUids.contains(uid)) {
+      throw new BulkAccessNotAllowedException(uid);
     }
+  }
 
-    return ResponseEntity.status(201).body(updatedUserAccount);
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = CacheConfig.USER_ACCOUNTS, key = "#uid")
+  public ResponseEntity<UserAccount> updateUserAccount(
+          UserAccount newUserDetails, String uid, Long expectedVersion) {
+    UserAccount updatedUserAccount =
+        (expectedVersion == null
+                ? repository.updateUserAccount(uid, newUserDetails)
+                : repository.updateUserAccount(uid, newUserDetails, expectedVersion))
+            .orElseThrow(() -> notUpdated(uid, expectedVersion));
+    outboxWriter.record(OutboxEventType.ACCOUNT_UPDATED, updatedUserAccount);
+    availabilityIndex.addUsername(updatedUserAccount.getUsername());
+    availabilityIndex.addEmail(updatedUserAccount.getEmail());
+    invalidationBus.publish(uid);
+
+    return ResponseEntity.status(201).eTag(String.valueOf(updatedUserAccount.getVersion())).body(updatedUserAccount);
   }
 
   @Override
-  public ResponseEntity<UserAccount> deleteUserAccount(String userUID) {
-    return null;
+  @Transactional
+  @CacheEvict(cacheNames = CacheConfig.USER_ACCOUNTS, key = "#uid")
+  public ResponseEntity<UserAccount> deleteUserAccount(String uid) {
+    UserAccount deletedUserAccount =
+        repository.markDeleted(uid).orElseThrow(() -> new UserAccountNotFoundException(uid));
+    // rows, blobs and the Firebase user are removed later by AccountPurger
+    tombstoneRepository.save(new AccountTombstone(uid, deletedUserAccount.getDeletedAt()));
+    outboxWriter.record(OutboxEventType.ACCOUNT_DELETED, deletedUserAccount);
+    invalidationBus.publish(uid);
+
+    return ResponseEntity.noContent().build();
   }
 
   @Override
+  @Transactional
+  @CacheEvict(cacheNames = CacheConfig.USER_ACCOUNTS, key = "#uid")
   public ResponseEntity<UserAccount> updateUserPersonalInfo(
-          UserPersonalInfo userPersonalInfo, String uid) {
+          UserPersonalInfo userPersonalInfo, String uid, Long expectedVersion) {
     UserAccount updatedUserAccount =
-        repository
-            .findById(uid)
-            .map(
-                userAccount -> {
-                  UserAccount.UserAccountBuilder userAccountBuilder = userAccount.toBuilder();
-                  userAccount =
-                      userAccountBuilder
-                          .firstName(userPersonalInfo.firstName)
-                          .lastName(userPersonalInfo.lastName)
-                          .address(userPersonalInfo.address)
-                          .city(userPersonalInfo.city)
-                          .state(userPersonalInfo.state)
-                          .country(userPersonalInfo.country)
-                          .zipCode(userPersonalInfo.zipCode)
-                          .build();
-                  return repository.save(userAccount);
-                })
-            .orElseThrow(() -> new UserAccountNotFoundException(uid));
+        (expectedVersion == null
+                ? repository.updatePersonalInfo(uid, userPersonalInfo)
+                : repository.updatePersonalInfo(uid, userPersonalInfo, expectedVersion))
+            .orElseThrow(() -> notUpdated(uid, expectedVersion));
+    outboxWriter.record(OutboxEventType.PERSONAL_INFO_CHANGED, updatedUserAccount);
+    invalidationBus.publish(uid);
 
-    return ResponseEntity.status(201).body(updatedUserAccount);
+    return ResponseEntity.status(201).eTag(String.valueOf(updatedUserAccount.getVersion())).body(updatedUserAccount);
+  }
+
+  private RuntimeException notUpdated(String uid, Long expectedVersion) {
+    if (expectedVersion != null && repository.existsByUidAndDeletedAtIsNull(uid)) {
+      return new UserAccountModifiedException(uid);
+    }
+    return new UserAccountNotFoundException(uid);
   }
 
   @Override
   public Boolean checkUsernameAvailability(String username) {
-    return repository.existsUserAccountByUsername(username);
+    return availabilityIndex.isUsernameTaken(username, repository::existsUserAccountByUsername);
   }
 
   @Override
   public Boolean checkEmailAvailability(String email) {
-    return repository.existsUserAccountByEmail(email);
+    return availabilityIndex.isEmailTaken(email, repository::existsUserAccountByEmail);
   }
 
   @Override
-  public ResponseEntity<UserAccount> updateEmail(String newEmail, String uid, UpdateRequest request) throws FirebaseAuthException {
-    boolean emailExists = repository.existsUserAccountByEmail(newEmail);
+  public AvailabilityResponse checkAvailability(AvailabilityRequest request) {
+    List<String> usernames = candidates(request.getUsernames());
+    List<String> emails = candidates(request.getEmails());
+    if (usernames.size() + emails.size() > MAX_AVAILABILITY_CANDIDATES) {
+      throw new BatchLimitExceededException("usernames and emails", MAX_AVAILABILITY_CANDIDATES);
+    }
 
-    if (emailExists) {
-      throw new EmailExistsException(newEmail);
+    List<String> takenUsernames =
+        inRequestOrder(usernames, availabilityIndex.takenUsernames(usernames, repository::findExistingUsernames));
+    List<String> takenEmails =
+        inRequestOrder(emails, availabilityIndex.takenEmails(emails, repository::findExistingEmails));
+
+    int suggestions = Math.max(0, Math.min(request.getSuggestions(), MAX_USERNAME_SUGGESTIONS));
+    Map<String, List<String>> suggestedUsernames =
+        suggestions > 0 ? usernameSuggester.suggest(takenUsernames, suggestions) : Map.of();
+    return new AvailabilityResponse(takenUsernames, takenEmails, suggestedUsernames);
+  }
+
+  private static List<String> candidates(List<String> values) {
+    if (values == null) {
+      return List.of();
+    }
+    return values.stream().filter(Objects::nonNull).collect(Collectors.toList());
+  }
+
+  private static List<String> inRequestOrder(List<String> candidates, Set<String> taken) {
+    List<String> ordered = new ArrayList<>(taken.size());
+    for (String candidate : candidates) {
+      if (taken.contains(candidate) && !ordered.contains(candidate)) {
+        ordered.add(candidate);
+      }
     }
+    return ordered;
+  }
 
+  @Override
+  @Transactional
+  @CacheEvict(cacheNames = CacheConfig.USER_ACCOUNTS, key = "#uid")
+  public ResponseEntity<UserAccount> updateEmail(String newEmail, String uid) {
     UserAccount updatedUserAccount =
-        repository
-            .findById(uid)
-            .map(
-                userAccount -> {
-                  UserAccount.UserAccountBuilder userAccountBuilder = userAccount.toBuilder();
-                  userAccount = userAccountBuilder.email(newEmail).build();
-                  return repository.save(userAccount);
-                })
-            .orElseThrow(() -> new UserAccountNotFoundException(uid));
-
-    firebaseAuth.updateUser(request);
+        repository.updateEmail(uid, newEmail).orElseThrow(() -> new UserAccountNotFoundException(uid));
+    outboxWriter.record(OutboxEventType.EMAIL_CHANGED, updatedUserAccount);
+    firebaseSyncQueue.enqueueEmailUpdate(uid, newEmail);
+    availabilityIndex.addEmail(newEmail);
+    invalidationBus.publish(uid);
 
     return ResponseEntity.status(201).body(updatedUserAccount);
   }
 
   @Override
+  @Transactional
+  @CacheEvict(cacheNames = CacheConfig.USER_ACCOUNTS, key = "#uid")
   public ResponseEntity<UserAccount> updateUsername(
           String newUsername, String uid) {
-    boolean usernameExists = repository.existsUserAccountByUsername(newUsername);
-    if (usernameExists) {
-      throw new UsernameExistsException(newUsername);
-    }
     UserAccount updatedUserAccount =
-        repository
-            .findById(uid)
-            .map(
-                userAccount -> {
-                  UserAccount.UserAccountBuilder userAccountBuilder = userAccount.toBuilder();
-                  userAccount = userAccountBuilder.username(newUsername).build();
-
-                  return repository.save(userAccount);
-                })
-            .orElseThrow(() -> new UserAccountNotFoundException(uid));
+        repository.updateUsername(uid, newUsername).orElseThrow(() -> new UserAccountNotFoundException(uid));
+    outboxWriter.record(OutboxEventType.USERNAME_CHANGED, updatedUserAccount);
+    availabilityIndex.addUsername(newUsername);
+    invalidationBus.publish(uid);
 
     return ResponseEntity.status(201).body(updatedUserAccount);
   }
 
   @Override
+  @CacheEvict(cacheNames = CacheConfig.USER_ACCOUNTS, key = "#uid")
   public ResponseEntity<UserAccount> updateProfilePhoto(MultipartFile photo, String uid) throws IOException {
-    Bucket bucket = storageClient.bucket();
-    Blob blob = bucket.create(photo.getOriginalFilename(), photo.getInputStream(), photo.getContentType());
-    String mediaUrl = buildMediaUrl(bucket.getName(), blob.getName());
+    String photoKey = profilePhotoUploader.upload(photo);
 
-    UserAccount updatedUserAccount =
-        repository
-            .findById(uid)
-            .map(
-                userAccount -> {
-                  UserAccount.UserAccountBuilder userAccountBuilder = userAccount.toBuilder();
-                  userAccount = userAccountBuilder.photoUrl(mediaUrl).build();
-                  return repository.save(userAccount);
-                })
-            .orElseThrow(() -> new UserAccountNotFoundException(uid));
+    // the upload stays outside the transaction so a slow client does not hold a connection
+    UserAccount updatedUserAccount = markPhotoPending(uid, photoKey);
+    if (updatedUserAccount == null) {
+      // the purger removed the photo after the upload trusted a stale hint, so store it again
+      profilePhotoUploader.forget(photoKey);
+      profilePhotoUploader.upload(photo);
+      updatedUserAccount = markPhotoPending(uid, photoKey);
+      if (updatedUserAccount == null) {
+        throw new IllegalStateException("Photo " + photoKey + " was removed while it was being stored");
+      }
+    }
+    invalidationBus.publish(uid);
+    if (profilePhotoProcessor.submit(uid, photoKey) == PhotoStatus.READY) {
+      return ResponseEntity.ok(repository.findById(uid).orElseThrow(() -> new UserAccountNotFoundException(uid)));
+    }
 
-    return ResponseEntity.status(201).body(updatedUserAccount);
+    return ResponseEntity.status(202).body(updatedUserAccount);
+  }
+
+  // the purger deletes unreferenced photos under the same lock, so once the row points at the key the photo stays
+  private UserAccount markPhotoPending(String uid, String photoKey) {
+    return transaction.execute(status -> {
+      repository.lockPhotoKey(photoKey);
+      if (!profilePhotoUploader.isOriginalStored(photoKey)) {
+        return null;
+      }
+      UserAccount pending =
+          repository.updatePhotoPending(uid, photoKey).orElseThrow(() -> new UserAccountNotFoundException(uid));
+      outboxWriter.record(OutboxEventType.PHOTO_CHANGED, pending);
+      return pending;
+    });
+  }
+
+  @EventListener
+  @Transactional
+  @CacheEvict(cacheNames = CacheConfig.USER_ACCOUNTS, key = "#event.uid")
+  public void onProfilePhotoProcessed(ProfilePhotoProcessedEvent event) {
+    int updated =
+        event.getStatus() == PhotoStatus.READY
+            ? repository.updatePhotoReady(
+                event.getUid(), event.getPhotoKey(), event.getPhotoUrl(), event.getAvatarUrl())
+            : repository.updatePhotoFailed(event.getUid(), event.getPhotoKey());
+    if (updated > 0) {
+      repository.findById(event.getUid())
+          .ifPresent(userAccount -> outboxWriter.record(OutboxEventType.PHOTO_CHANGED, userAccount));
+      invalidationBus.publish(event.getUid());
+    }
   }
 
   @Override
-  public List<UserAccount> findUserAccounts(String searchQuery, String uid) {
-    Page<UserAccount> userAccounts;
-    Pageable sortedByUsername = PageRequest.of(0, 20, Sort.by("username"));
-    if (searchQuery == null || searchQuery.isEmpty()) {
-      userAccounts = repository.findAll(sortedByUsername);
-    } else {
-      userAccounts = repository.searchByUsernameContainingIgnoreCase(searchQuery, sortedByUsername);
+  public BatchLookupResponse findContactsByUid(List<String> uids) {
+    if (uids == null || uids.stream().anyMatch(Objects::isNull)) {
+      throw new InvalidUidsException();
+    }
+    if (uids.size() > MAX_BATCH_LOOKUP_UIDS) {
+      throw new BatchLimitExceededException("uids", MAX_BATCH_LOOKUP_UIDS);
     }
 
-    return userAccounts.getContent();
+    Cache cache = cacheManager.getCache(CacheConfig.USER_ACCOUNTS);
+    Map<String, UserAccount> userAccounts = new HashMap<>();
+    Set<String> misses = new LinkedHashSet<>();
+    for (String uid : uids) {
+      UserAccount cached = cache == null ? null : cache.get(uid, UserAccount.class);
+      if (cached != null) {
+        userAccounts.put(uid, cached);
+      } else {
+        misses.add(uid);
+      }
+    }
+    if (!misses.isEmpty()) {
+      for (UserAccount userAccount : repository.findAllById(misses)) {
+        if (userAccount.getDeletedAt() != null) {
+          continue;
+        }
+        userAccounts.put(userAccount.getUid(), userAccount);
+        if (cache != null) {
+          cache.putIfAbsent(userAccount.getUid(), userAccount);
+        }
+      }
+    }
+
+    List<ContactDTO> contacts = new ArrayList<>(uids.size());
+    List<String> missingUids = new ArrayList<>();
+    for (String uid : uids) {
+      UserAccount userAccount = userAccounts.get(uid);
+      if (userAccount == null) {
+        missingUids.add(uid);
+      } else {
+        contacts.add(presenceBuffer.overlay(userAccountMapper.toContact(userAccount)));
+      }
+    }
+    return new BatchLookupResponse(contacts, missingUids);
+  }
+
+  @Override
+  public void updatePresence(PresenceStatus status, String uid) {
+    presenceBuffer.heartbeat(uid, status.getValue());
+  }
+
+  @Override
+  public Slice<ContactDTO> findContacts(String searchQuery, String afterUsername, int size, String uid) {
+    int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+    String pattern = searchQuery == null || searchQuery.isEmpty() ? "%" : containsPattern(searchQuery);
+    String after = afterUsername == null ? "" : afterUsername;
+
+    List<ContactDTO> contacts =
+        repository.searchContacts(pattern, after, PageRequest.of(0, pageSize + 1));
+    boolean hasNext = contacts.size() > pageSize;
+    contacts.forEach(presenceBuffer::overlay);
+    return new SliceImpl<>(
+        hasNext ? contacts.subList(0, pageSize) : contacts,
+        PageRequest.of(0, pageSize, Sort.by("username")),
+        hasNext);
+  }
+
+  @Override
+  public ChangesResponse findChanges(ChangeCursor since, int size) {
+    int pageSize = Math.max(1, Math.min(size, MAX_CHANGES_PAGE_SIZE));
+    // changes of transactions still in flight stay hidden until they settle, however long they run
+    long settledXid = repository.findSettledXid();
+    PageRequest page = PageRequest.of(0, pageSize + 1);
+
+    TreeMap<ChangeCursor, AccountChange> changes = new TreeMap<>();
+    for (UserAccount userAccount :
+        repository.findChangedSince(since.getChangeXid(), since.getUid(), settledXid, page)) {
+      long changeXid = userAccount.getChangeXid() == null ? 0 : userAccount.getChangeXid();
+      changes.put(new ChangeCursor(changeXid, userAccount.getUid()), new AccountChange(
+          userAccount.getUid(), userAccount.getUpdatedAt(), false, userAccountMapper.toContact(userAccount)));
+    }
+    for (AccountTombstone tombstone :
+        tombstoneRepository.findDeletedSince(since.getChangeXid(), since.getUid(), settledXid, page)) {
+      changes.put(new ChangeCursor(tombstone.getChangeXid(), tombstone.getUid()),
+          new AccountChange(tombstone.getUid(), tombstone.getDeletedAt(), true, null));
+    }
+
+    boolean hasMore = changes.size() > pageSize;
+    while (changes.size() > pageSize) {
+      changes.pollLastEntry();
+    }
+    ChangeCursor next = changes.isEmpty() ? since : changes.lastKey();
+    return new ChangesResponse(new ArrayList<>(changes.values()), next.encode(), hasMore);
   }
 
-  private String buildMediaUrl(String bucketName, String blobName) {
-    return String.format(
-        "https://firebasestorage.googleapis.com/v0/b/%s/o/%s?alt=media", bucketName, blobName);
+  private String containsPattern(String searchQuery) {
+    String escaped = searchQuery.toLowerCase(Locale.ROOT)
+        .replace("\\", "\\\\")
+        .replace("%", "\\%")
+        .replace("_", "\\_");
+    return "%" + escaped + "%";
   }
 }
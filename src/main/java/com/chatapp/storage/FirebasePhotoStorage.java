@@ -0,0 +1,57 @@
+package com.chatapp.storage;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Bucket;
+import com.google.firebase.cloud.StorageClient;
+
+import java.net.URLEncoder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class FirebasePhotoStorage implements PhotoStorage {
+
+    private final StorageClient storageClient;
+    private final int chunkSize;
+
+    public FirebasePhotoStorage(StorageClient storageClient, int chunkSize) {
+        this.storageClient = storageClient;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public ReadableByteChannel openReader(String objectName) {
+        Bucket bucket = storageClient.bucket();
+        return bucket.getStorage().reader(BlobId.of(bucket.getName(), objectName));
+    }
+
+    @Override
+    public WritableByteChannel openWriter(String objectName, String contentType) {
+        Bucket bucket = storageClient.bucket();
+        BlobInfo blobInfo = BlobInfo.newBuilder(bucket.getName(), objectName).setContentType(contentType).build();
+        WriteChannel writer = bucket.getStorage().writer(blobInfo);
+        writer.setChunkSize(chunkSize);
+        return writer;
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        return storageClient.bucket().get(objectName) != null;
+    }
+
+    @Override
+    public void delete(String objectName) {
+        Bucket bucket = storageClient.bucket();
+        bucket.getStorage().delete(BlobId.of(bucket.getName(), objectName));
+    }
+
+    @Override
+    public String mediaUrl(String objectName) {
+        return String.format(
+                "https://firebasestorage.googleapis.com/v0/b/%s/o/%s?alt=media",
+                storageClient.bucket().getName(),
+                URLEncoder.encode(objectName, StandardCharsets.UTF_8));
+    }
+}
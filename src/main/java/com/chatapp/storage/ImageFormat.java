@@ -0,0 +1,52 @@
+package com.chatapp.storage;
+
+import java.nio.ByteBuffer;
+
+public enum ImageFormat {
+    JPEG("image/jpeg", "jpg"),
+    PNG("image/png", "png"),
+    GIF("image/gif", "gif");
+
+    public static final int SIGNATURE_LENGTH = 12;
+
+    private final String contentType;
+    private final String extension;
+
+    ImageFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ImageFormat detect(ByteBuffer header) {
+        if (header.limit() < SIGNATURE_LENGTH) {
+            return null;
+        }
+        if (matches(header, 0, 0xFF, 0xD8, 0xFF)) {
+            return JPEG;
+        }
+        if (matches(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return PNG;
+        }
+        if (matches(header, 0, 'G', 'I', 'F', '8')) {
+            return GIF;
+        }
+        return null;
+    }
+
+    private static boolean matches(ByteBuffer header, int offset, int... signature) {
+        for (int i = 0; i < signature.length; i++) {
+            if ((header.get(offset + i) & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
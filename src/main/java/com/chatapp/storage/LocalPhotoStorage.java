@@ -0,0 +1,58 @@
+package com.chatapp.storage;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+public class LocalPhotoStorage implements PhotoStorage {
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalPhotoStorage(Path root, String baseUrl) {
+        this.root = root;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public ReadableByteChannel openReader(String objectName) throws IOException {
+        return Files.newByteChannel(resolve(objectName), READ);
+    }
+
+    @Override
+    public WritableByteChannel openWriter(String objectName, String contentType) throws IOException {
+        Path path = resolve(objectName);
+        Files.createDirectories(path.getParent());
+        return Files.newByteChannel(path, CREATE, TRUNCATE_EXISTING, WRITE);
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        return Files.exists(resolve(objectName));
+    }
+
+    @Override
+    public void delete(String objectName) throws IOException {
+        Files.deleteIfExists(resolve(objectName));
+    }
+
+    @Override
+    public String mediaUrl(String objectName) {
+        return baseUrl + "/" + objectName;
+    }
+
+    private Path resolve(String objectName) {
+        Path path = root.resolve(objectName).normalize();
+        if (!path.startsWith(root.normalize())) {
+            throw new IllegalArgumentException("Object name escapes storage root: " + objectName);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,58 @@
+package com.chatapp.storage;
+
+import com.chatapp.model.UserAccount;
+import com.chatapp.repository.UserAccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Slf4j
+@Component
+public class PendingPhotoSweeper {
+
+    private final UserAccountRepository repository;
+    private final ProfilePhotoProcessor profilePhotoProcessor;
+    private final Duration timeout;
+    private final int batchSize;
+
+    @Autowired
+    public PendingPhotoSweeper(
+            UserAccountRepository repository,
+            ProfilePhotoProcessor profilePhotoProcessor,
+            @Value("${storage.photo.pending.timeout}") Duration timeout,
+            @Value("${storage.photo.pending.batch-size}") int batchSize) {
+        this.repository = repository;
+        this.profilePhotoProcessor = profilePhotoProcessor;
+        this.timeout = timeout;
+        this.batchSize = batchSize;
+    }
+
+    // processing runs in memory, so a node that dies mid-photo would otherwise leave the account pending forever
+    @Scheduled(fixedDelayString = "${storage.photo.pending.sweep-interval}")
+    public void sweep() {
+        List<UserAccount> stale;
+        try {
+            stale = repository.findPhotoPendingBefore(
+                    OffsetDateTime.now().minus(timeout), PageRequest.of(0, batchSize));
+        } catch (DataAccessException e) {
+            log.warn("Could not load pending profile photos, retrying with the next run", e);
+            return;
+        }
+        for (UserAccount userAccount : stale) {
+            try {
+                profilePhotoProcessor.recover(userAccount.getUid(), userAccount.getPhotoKey());
+            } catch (RuntimeException e) {
+                log.warn("Could not settle profile photo {} for {}, retrying with the next run",
+                        userAccount.getPhotoKey(), userAccount.getUid(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.chatapp.storage;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+public interface PhotoStorage {
+    ReadableByteChannel openReader(String objectName) throws IOException;
+    WritableByteChannel openWriter(String objectName, String contentType) throws IOException;
+    boolean exists(String objectName);
+    void delete(String objectName) throws IOException;
+    String mediaUrl(String objectName);
+}
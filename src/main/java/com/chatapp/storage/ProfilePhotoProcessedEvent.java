@@ -0,0 +1,15 @@
+package com.chatapp.storage;
+
+import com.chatapp.model.PhotoStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class ProfilePhotoProcessedEvent {
+    private final String uid;
+    private final String photoKey;
+    private final PhotoStatus status;
+    private final String photoUrl;
+    private final String avatarUrl;
+}
@@ -0,0 +1,189 @@
+package com.chatapp.storage;
+
+import com.chatapp.exception.TooManyUploadsException;
+import com.chatapp.model.PhotoStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+public class ProfilePhotoProcessor {
+
+    static final int[] SIZES = {48, 128, 512};
+    private static final int AVATAR_SIZE = 48;
+    private static final int PHOTO_SIZE = 512;
+
+    private final PhotoStorage photoStorage;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public ProfilePhotoProcessor(
+            PhotoStorage photoStorage,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${storage.photo.processing.threads}") int threads,
+            @Value("${storage.photo.processing.queue-capacity}") int queueCapacity,
+            @Value("${storage.photo.processing.max-pixels}") long maxPixels) {
+        this.photoStorage = photoStorage;
+        this.eventPublisher = eventPublisher;
+        this.maxPixels = maxPixels;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "profile-photo-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public static String originalObjectName(String photoKey) {
+        return photoKey + "/original";
+    }
+
+    public static String variantObjectName(String photoKey, int size) {
+        return photoKey + "/" + size + ".jpg";
+    }
+
+    public static List<String> objectNames(String photoKey) {
+        List<String> objectNames = new ArrayList<>(SIZES.length + 1);
+        objectNames.add(originalObjectName(photoKey));
+        for (int size : SIZES) {
+            objectNames.add(variantObjectName(photoKey, size));
+        }
+        return objectNames;
+    }
+
+    public PhotoStatus submit(String uid, String photoKey) {
+        // variants are written smallest first, so the largest one existing means the photo key is fully processed
+        if (photoStorage.exists(variantObjectName(photoKey, PHOTO_SIZE))) {
+            eventPublisher.publishEvent(readyEvent(uid, photoKey));
+            return PhotoStatus.READY;
+        }
+        try {
+            executor.execute(() -> process(uid, photoKey));
+            return PhotoStatus.PENDING;
+        } catch (RejectedExecutionException e) {
+            eventPublisher.publishEvent(new ProfilePhotoProcessedEvent(uid, photoKey, PhotoStatus.FAILED, null, null));
+            throw new TooManyUploadsException();
+        }
+    }
+
+    // for a photo whose processing died with the node running it; the user uploads again if nothing was finished
+    public void recover(String uid, String photoKey) {
+        if (photoStorage.exists(variantObjectName(photoKey, PHOTO_SIZE))) {
+            eventPublisher.publishEvent(readyEvent(uid, photoKey));
+        } else {
+            eventPublisher.publishEvent(new ProfilePhotoProcessedEvent(uid, photoKey, PhotoStatus.FAILED, null, null));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    void process(String uid, String photoKey) {
+        ProfilePhotoProcessedEvent result;
+        try {
+            BufferedImage source = decode(originalObjectName(photoKey));
+            for (int size : SIZES) {
+                write(variantObjectName(photoKey, size), squareThumbnail(source, size));
+            }
+            result = readyEvent(uid, photoKey);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not process profile photo {} for {}", photoKey, uid, e);
+            result = new ProfilePhotoProcessedEvent(uid, photoKey, PhotoStatus.FAILED, null, null);
+        }
+        eventPublisher.publishEvent(result);
+    }
+
+    private ProfilePhotoProcessedEvent readyEvent(String uid, String photoKey) {
+        return new ProfilePhotoProcessedEvent(
+                uid,
+                photoKey,
+                PhotoStatus.READY,
+                photoStorage.mediaUrl(variantObjectName(photoKey, PHOTO_SIZE)),
+                photoStorage.mediaUrl(variantObjectName(photoKey, AVATAR_SIZE)));
+    }
+
+    private BufferedImage decode(String objectName) throws IOException {
+        try (InputStream inputStream = Channels.newInputStream(photoStorage.openReader(objectName));
+             ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + objectName);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException(objectName + " has more than " + maxPixels + " pixels");
+                }
+                int subsampling = Math.max(1, Math.min(width, height) / PHOTO_SIZE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void write(String objectName, BufferedImage image) throws IOException {
+        try (OutputStream outputStream = Channels.newOutputStream(
+                photoStorage.openWriter(objectName, ImageFormat.JPEG.getContentType()))) {
+            ImageIO.write(image, "jpg", outputStream);
+        }
+    }
+
+    private static BufferedImage squareThumbnail(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        BufferedImage image = source.getSubimage(
+                (source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side);
+        while (image.getWidth() / 2 >= size) {
+            image = scale(image, image.getWidth() / 2);
+        }
+        return scale(image, size);
+    }
+
+    private static BufferedImage scale(BufferedImage source, int size) {
+        BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, size, size, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
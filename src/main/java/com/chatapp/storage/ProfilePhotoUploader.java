@@ -0,0 +1,179 @@
+package com.chatapp.storage;
+
+import com.chatapp.cache.CacheInvalidationBus;
+import com.chatapp.cache.CacheInvalidationListener;
+import com.chatapp.exception.InvalidPhotoException;
+import com.chatapp.exception.TooManyUploadsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+@Component
+public class ProfilePhotoUploader {
+
+    private static final String PHOTO_KEY_PREFIX = "photos/sha256/";
+    static final String STORED_PHOTO_KEYS_TOPIC = "profile_photo_key";
+
+    private final PhotoStorage photoStorage;
+    private final CacheInvalidationBus invalidationBus;
+    private final long maxSize;
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final Cache<String, Boolean> storedPhotoKeys;
+
+    @Autowired
+    public ProfilePhotoUploader(
+            PhotoStorage photoStorage,
+            CacheInvalidationBus invalidationBus,
+            @Value("${storage.photo.max-size}") DataSize maxSize,
+            @Value("${storage.photo.max-concurrent-uploads}") int maxConcurrentUploads,
+            @Value("${storage.photo.buffer-size}") DataSize bufferSize,
+            @Value("${storage.photo.known-hashes.maximum-size}") long knownHashesMaximumSize,
+            @Value("${storage.photo.known-hashes.expire-after-write}") Duration knownHashesExpireAfterWrite) {
+        this.photoStorage = photoStorage;
+        this.invalidationBus = invalidationBus;
+        this.maxSize = maxSize.toBytes();
+        this.buffers = new ArrayBlockingQueue<>(Math.max(1, maxConcurrentUploads));
+        for (int i = 0; i < maxConcurrentUploads; i++) {
+            buffers.add(ByteBuffer.allocateDirect((int) bufferSize.toBytes()));
+        }
+        // the expiry bounds how long a hint survives a missed forget, e.g. while the bus was reconnecting
+        this.storedPhotoKeys = Caffeine.newBuilder()
+                .maximumSize(knownHashesMaximumSize)
+                .expireAfterWrite(knownHashesExpireAfterWrite)
+                .build();
+        invalidationBus.subscribe(STORED_PHOTO_KEYS_TOPIC, new CacheInvalidationListener() {
+            @Override
+            public void invalidate(String photoKey) {
+                storedPhotoKeys.invalidate(photoKey);
+            }
+
+            @Override
+            public void invalidateAll() {
+                storedPhotoKeys.invalidateAll();
+            }
+        });
+    }
+
+    // drops the hint on every node, the local one included
+    public void forget(String photoKey) {
+        storedPhotoKeys.invalidate(photoKey);
+        invalidationBus.publish(STORED_PHOTO_KEYS_TOPIC, List.of(photoKey));
+    }
+
+    // asks the storage itself; the known-photo cache is only a hint and may lag behind a purge
+    public boolean isOriginalStored(String photoKey) {
+        return photoStorage.exists(ProfilePhotoProcessor.originalObjectName(photoKey));
+    }
+
+    public String upload(MultipartFile photo) throws IOException {
+        if (photo.isEmpty()) {
+            throw new InvalidPhotoException("file is empty");
+        }
+        if (photo.getSize() > maxSize) {
+            throw new InvalidPhotoException("file is larger than " + maxSize + " bytes");
+        }
+
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            throw new TooManyUploadsException();
+        }
+        try {
+            MessageDigest digest = sha256();
+            ImageFormat format;
+            try (ReadableByteChannel source = Channels.newChannel(photo.getInputStream())) {
+                format = readFormat(source, buffer);
+                digest(source, digest, buffer);
+            }
+            String photoKey = PHOTO_KEY_PREFIX + String.format("%064x", new BigInteger(1, digest.digest()));
+            if (isStored(photoKey)) {
+                return photoKey;
+            }
+
+            try (ReadableByteChannel source = Channels.newChannel(photo.getInputStream());
+                 WritableByteChannel target = photoStorage.openWriter(
+                         ProfilePhotoProcessor.originalObjectName(photoKey), format.getContentType())) {
+                buffer.clear().flip();
+                copy(source, target, buffer);
+            }
+            storedPhotoKeys.put(photoKey, Boolean.TRUE);
+            return photoKey;
+        } finally {
+            buffers.offer(buffer);
+        }
+    }
+
+    private boolean isStored(String photoKey) {
+        if (storedPhotoKeys.getIfPresent(photoKey) != null) {
+            return true;
+        }
+        if (isOriginalStored(photoKey)) {
+            storedPhotoKeys.put(photoKey, Boolean.TRUE);
+            return true;
+        }
+        return false;
+    }
+
+    private static ImageFormat readFormat(ReadableByteChannel source, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.position() < ImageFormat.SIGNATURE_LENGTH && source.read(buffer) >= 0) {
+            // keep reading until the format signature is buffered
+        }
+        buffer.flip();
+        ImageFormat format = ImageFormat.detect(buffer);
+        if (format == null) {
+            throw new InvalidPhotoException("only JPEG, PNG and GIF images are accepted");
+        }
+        return format;
+    }
+
+    private static void digest(ReadableByteChannel source, MessageDigest digest, ByteBuffer buffer)
+            throws IOException {
+        do {
+            digest.update(buffer);
+            buffer.clear();
+            if (source.read(buffer) < 0) {
+                return;
+            }
+            buffer.flip();
+        } while (true);
+    }
+
+    private static void copy(ReadableByteChannel source, WritableByteChannel target, ByteBuffer buffer)
+            throws IOException {
+        do {
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            buffer.clear();
+            if (source.read(buffer) < 0) {
+                return;
+            }
+            buffer.flip();
+        } while (true);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.chatapp.advice;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserAccountControllerAdviceTest {
+
+  private final UserAccountControllerAdvice advice = new UserAccountControllerAdvice();
+
+  @Test
+  @DisplayName("Should report a duplicate username from the unique constraint")
+  void Should_translate_duplicate_username() {
+    String message = advice.duplicateKeyHandler(duplicateKey("username", "john"));
+    assertEquals("Username john has been taken. Try Another.", message);
+  }
+
+  @Test
+  @DisplayName("Should report a duplicate email from the unique constraint")
+  void Should_translate_duplicate_email() {
+    String message = advice.duplicateKeyHandler(duplicateKey("email", "john@gmail.com"));
+    assertTrue(message.contains("john@gmail.com"));
+  }
+
+  @Test
+  @DisplayName("Should report a registration for an existing uid from the primary key")
+  void Should_translate_duplicate_uid() {
+    String message = advice.duplicateKeyHandler(duplicateKey("uid", "1"));
+    assertEquals("An account for user 1 already exists.", message);
+  }
+
+  @Test
+  @DisplayName("Should rethrow integrity violations that are not duplicate accounts, usernames or emails")
+  void Should_rethrow_other_violations() {
+    DataIntegrityViolationException e = duplicateKey("phone_number", "1");
+    assertSame(e, assertThrows(DataIntegrityViolationException.class, () -> advice.duplicateKeyHandler(e)));
+  }
+
+  private static DataIntegrityViolationException duplicateKey(String column, String value) {
+    SQLException cause = new SQLException(
+        "ERROR: duplicate key value violates unique constraint \"uk_user_account_" + column + "\"\n"
+            + "  Detail: Key (" + column + ")=(" + value + ") already exists.",
+        "23505");
+    return new DataIntegrityViolationException("could not execute statement", cause);
+  }
+}
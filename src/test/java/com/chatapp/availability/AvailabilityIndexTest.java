@@ -0,0 +1,130 @@
+package com.chatapp.availability;
+
+import com.chatapp.cache.CacheInvalidationBus;
+import com.chatapp.cache.InMemoryCacheInvalidationBus;
+import com.chatapp.repository.UserAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityIndexTest {
+
+  @Mock UserAccountRepository repository;
+  @Mock PlatformTransactionManager transactionManager;
+
+  @Test
+  @DisplayName("Should fall back to the database until the index is built")
+  void Should_query_database_before_index_is_built() {
+    when(repository.existsUserAccountByUsername("john")).thenReturn(false);
+    AvailabilityIndex index = newAvailabilityIndex();
+    assertFalse(index.isUsernameTaken("john", repository::existsUserAccountByUsername));
+    verify(repository).existsUserAccountByUsername("john");
+  }
+
+  @Test
+  @DisplayName("Should answer absent names without querying the database once built")
+  void Should_skip_database_for_absent_names() {
+    when(repository.streamUsernamesAndEmails())
+        .thenReturn(Stream.<Object[]>of(new Object[] {"johndoe", "johndoe@gmail.com"}));
+    AvailabilityIndex index = newAvailabilityIndex();
+    index.rebuild();
+
+    assertFalse(index.isUsernameTaken("janedoe", repository::existsUserAccountByUsername));
+    assertFalse(index.isEmailTaken("janedoe@gmail.com", repository::existsUserAccountByEmail));
+    verify(repository, never()).existsUserAccountByUsername(anyString());
+    verify(repository, never()).existsUserAccountByEmail(anyString());
+  }
+
+  @Test
+  @DisplayName("Should confirm possible hits, including names added after the build, with the database")
+  void Should_confirm_possible_hits_with_database() {
+    when(repository.streamUsernamesAndEmails())
+        .thenReturn(Stream.<Object[]>of(new Object[] {"johndoe", "johndoe@gmail.com"}));
+    when(repository.existsUserAccountByUsername("johndoe")).thenReturn(true);
+    when(repository.existsUserAccountByUsername("janedoe")).thenReturn(true);
+    AvailabilityIndex index = newAvailabilityIndex();
+    index.rebuild();
+    index.addUsername("janedoe");
+
+    assertTrue(index.isUsernameTaken("johndoe", repository::existsUserAccountByUsername));
+    assertTrue(index.isUsernameTaken("janedoe", repository::existsUserAccountByUsername));
+  }
+
+  @Test
+  @DisplayName("Should learn names taken on other nodes through the invalidation bus")
+  void Should_learn_names_added_on_other_nodes() {
+    when(repository.streamUsernamesAndEmails())
+        .thenAnswer(invocation -> Stream.<Object[]>of(new Object[] {"johndoe", "johndoe@gmail.com"}));
+    when(repository.findExistingUsernames(List.of("janedoe"))).thenReturn(List.of("janedoe"));
+    CacheInvalidationBus invalidationBus = new InMemoryCacheInvalidationBus();
+    AvailabilityIndex local = newAvailabilityIndex(invalidationBus);
+    AvailabilityIndex remote = newAvailabilityIndex(invalidationBus);
+    local.rebuild();
+    remote.rebuild();
+
+    remote.addUsernames(List.of("janedoe"));
+
+    assertEquals(Set.of("janedoe"), local.takenUsernames(List.of("janedoe"), repository::findExistingUsernames));
+  }
+
+  @Test
+  @DisplayName("Should add names taken inside a transaction only once it committed")
+  void Should_add_names_after_commit() {
+    when(repository.streamUsernamesAndEmails()).thenReturn(Stream.empty());
+    when(repository.existsUserAccountByUsername("janedoe")).thenReturn(true);
+    AvailabilityIndex index = newAvailabilityIndex();
+    index.rebuild();
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      index.addUsername("janedoe");
+      assertFalse(index.isUsernameTaken("janedoe", repository::existsUserAccountByUsername));
+      verify(repository, never()).existsUserAccountByUsername("janedoe");
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertTrue(index.isUsernameTaken("janedoe", repository::existsUserAccountByUsername));
+  }
+
+  @Test
+  @DisplayName("Should keep names committed while a rebuild reads the table")
+  void Should_keep_names_added_during_rebuild() {
+    AvailabilityIndex index = newAvailabilityIndex();
+    when(repository.streamUsernamesAndEmails()).thenAnswer(invocation -> {
+      index.addUsername("janedoe");
+      return Stream.<Object[]>of(new Object[] {"johndoe", "johndoe@gmail.com"});
+    });
+    when(repository.existsUserAccountByUsername("janedoe")).thenReturn(true);
+
+    index.rebuild();
+
+    assertTrue(index.isUsernameTaken("janedoe", repository::existsUserAccountByUsername));
+  }
+
+  private AvailabilityIndex newAvailabilityIndex() {
+    return newAvailabilityIndex(new InMemoryCacheInvalidationBus());
+  }
+
+  private AvailabilityIndex newAvailabilityIndex(CacheInvalidationBus invalidationBus) {
+    return new AvailabilityIndex(
+        repository, invalidationBus, transactionManager, new SimpleMeterRegistry(), 1000, 0.01);
+  }
+}
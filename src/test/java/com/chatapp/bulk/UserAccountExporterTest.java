@@ -0,0 +1,47 @@
+package com.chatapp.bulk;
+
+import com.chatapp.model.UserAccount;
+import com.chatapp.repository.UserAccountRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserAccountExporterTest {
+
+  @Mock UserAccountRepository repository;
+  @Mock PlatformTransactionManager transactionManager;
+  @Mock EntityManager entityManager;
+
+  @Test
+  @DisplayName("Should write one JSON document per line and detach each account once written")
+  void Should_write_ndjson_and_detach_rows() throws IOException {
+    UserAccount john = UserAccount.builder().uid("1").username("john").build();
+    UserAccount jane = UserAccount.builder().uid("2").username("jane").build();
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    when(repository.streamAll()).thenReturn(Stream.of(john, jane));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    new UserAccountExporter(repository, transactionManager, entityManager, objectMapper).exportNdjson(output);
+
+    String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(2, lines.length);
+    assertEquals("john", objectMapper.readTree(lines[0]).get("username").asText());
+    assertEquals("jane", objectMapper.readTree(lines[1]).get("username").asText());
+    verify(entityManager).detach(john);
+    verify(entityManager).detach(jane);
+  }
+}
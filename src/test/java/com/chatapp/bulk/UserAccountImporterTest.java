@@ -0,0 +1,114 @@
+package com.chatapp.bulk;
+
+import com.chatapp.availability.AvailabilityIndex;
+import com.chatapp.cache.InMemoryCacheInvalidationBus;
+import com.chatapp.dto.ImportReport;
+import com.chatapp.model.UserAccount;
+import com.chatapp.outbox.OutboxWriter;
+import com.chatapp.repository.UserAccountRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserAccountImporterTest {
+
+  @Mock UserAccountRepository repository;
+  @Mock PlatformTransactionManager transactionManager;
+  @Mock OutboxWriter outboxWriter;
+
+  @Test
+  @DisplayName("Should insert NDJSON rows in batches and report rows whose names are taken")
+  void Should_import_ndjson_in_batches() throws IOException {
+    when(repository.findExistingUids(anyCollection())).thenReturn(List.of());
+    when(repository.findExistingUsernames(anyCollection())).thenReturn(List.of("jane"));
+    when(repository.findExistingEmails(anyCollection())).thenReturn(List.of());
+    String ndjson = "{\"uid\":\"1\",\"username\":\"john\",\"email\":\"john@gmail.com\"}\n"
+        + "{\"uid\":\"2\",\"username\":\"jane\",\"email\":\"jane@gmail.com\"}\n"
+        + "\n"
+        + "{\"uid\":\"3\",\"username\":\"jim\",\"email\":\"jim@gmail.com\"}\n"
+        + "not json\n";
+
+    ImportReport report = newImporter(2).importNdjson(input(ndjson));
+
+    assertEquals(2, report.getImported());
+    assertEquals(2, report.getFailed());
+    assertEquals(List.of(2L, 5L), report.getFailures().stream().map(f -> f.getLine()).collect(Collectors.toList()));
+    verify(repository, times(2)).saveAllAndFlush(anyList());
+  }
+
+  @Test
+  @DisplayName("Should read quoted CSV values by header name")
+  void Should_import_csv_by_header() throws IOException {
+    when(repository.findExistingUids(anyCollection())).thenReturn(List.of());
+    when(repository.findExistingUsernames(anyCollection())).thenReturn(List.of());
+    when(repository.findExistingEmails(anyCollection())).thenReturn(List.of());
+    String csv = "uid,username,email,address\n"
+        + "1,john,john@gmail.com,\"1 Waverly Ave, \"\"Apt 2\"\"\"\n";
+
+    ImportReport report = newImporter(100).importCsv(input(csv));
+
+    assertEquals(1, report.getImported());
+    assertEquals("1 Waverly Ave, \"Apt 2\"", savedAccounts().get(0).getAddress());
+  }
+
+  @Test
+  @DisplayName("Should retry a failed batch row by row and keep the rows that fit")
+  void Should_isolate_rows_that_violate_constraints() throws IOException {
+    when(repository.findExistingUids(anyCollection())).thenReturn(List.of());
+    when(repository.findExistingUsernames(anyCollection())).thenReturn(List.of());
+    when(repository.findExistingEmails(anyCollection())).thenReturn(List.of());
+    when(repository.saveAllAndFlush(anyList()))
+        .thenThrow(new DataIntegrityViolationException("duplicate"))
+        .thenReturn(List.of())
+        .thenThrow(new DataIntegrityViolationException("duplicate"));
+    String ndjson = "{\"uid\":\"1\",\"username\":\"john\",\"email\":\"john@gmail.com\"}\n"
+        + "{\"uid\":\"2\",\"username\":\"jane\",\"email\":\"jane@gmail.com\"}\n";
+
+    ImportReport report = newImporter(100).importNdjson(input(ndjson));
+
+    assertEquals(1, report.getImported());
+    assertEquals(1, report.getFailed());
+    assertEquals("2", report.getFailures().get(0).getUid());
+  }
+
+  private UserAccountImporter newImporter(int batchSize) {
+    AvailabilityIndex availabilityIndex = new AvailabilityIndex(
+        repository, new InMemoryCacheInvalidationBus(), transactionManager, new SimpleMeterRegistry(), 1000, 0.01);
+    ObjectMapper objectMapper = new ObjectMapper()
+        .findAndRegisterModules()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    return new UserAccountImporter(
+        repository, transactionManager, availabilityIndex, outboxWriter, objectMapper, batchSize);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<UserAccount> savedAccounts() {
+    ArgumentCaptor<List<UserAccount>> saved = ArgumentCaptor.forClass(List.class);
+    verify(repository).saveAllAndFlush(saved.capture());
+    return saved.getValue();
+  }
+
+  private static ByteArrayInputStream input(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,30 @@
+package com.chatapp.cache;
+
+import com.chatapp.config.CacheConfig;
+import com.chatapp.model.UserAccount;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserAccountCacheInvalidatorTest {
+
+  @Test
+  @DisplayName("Should evict only the published uid from the account cache")
+  void Should_evict_published_uid() {
+    ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.USER_ACCOUNTS);
+    CacheInvalidationBus invalidationBus = new InMemoryCacheInvalidationBus();
+    new UserAccountCacheInvalidator(cacheManager, invalidationBus);
+    Cache cache = cacheManager.getCache(CacheConfig.USER_ACCOUNTS);
+    cache.put("1", new UserAccount());
+    cache.put("2", new UserAccount());
+
+    invalidationBus.publish("1");
+
+    assertNull(cache.get("1"));
+    assertNotNull(cache.get("2"));
+  }
+}
@@ -0,0 +1,41 @@
+package com.chatapp.dto;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeCursorTest {
+
+  @Test
+  @DisplayName("Should order uids of one transaction like collate \"C\" does")
+  void Should_order_uids_bytewise() {
+    // U+FFFD sorts after the surrogate pair of U+1F600 by UTF-16 code unit, but before it by code point
+    List<String> uids = List.of("a1", "\uFFFD", "_x", "\uD83D\uDE00", "B1").stream()
+        .map(uid -> new ChangeCursor(1L, uid))
+        .sorted()
+        .map(ChangeCursor::getUid)
+        .collect(Collectors.toList());
+
+    assertEquals(List.of("B1", "_x", "a1", "\uFFFD", "\uD83D\uDE00"), uids);
+  }
+
+  @Test
+  @DisplayName("Should order by transaction id before uid")
+  void Should_order_by_xid_first() {
+    assertTrue(new ChangeCursor(1L, "b").compareTo(new ChangeCursor(2L, "a")) < 0);
+    assertTrue(new ChangeCursor(2L, "a").compareTo(new ChangeCursor(2L, "ab")) < 0);
+  }
+
+  @Test
+  @DisplayName("Should round-trip through its encoded form")
+  void Should_round_trip_encoding() {
+    ChangeCursor cursor = ChangeCursor.decode(new ChangeCursor(42L, "B|1").encode());
+
+    assertEquals(42L, cursor.getChangeXid());
+    assertEquals("B|1", cursor.getUid());
+  }
+}
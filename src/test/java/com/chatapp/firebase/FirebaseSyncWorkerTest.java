@@ -0,0 +1,118 @@
+package com.chatapp.firebase;
+
+import com.chatapp.model.FirebaseSyncJob;
+import com.chatapp.model.FirebaseSyncType;
+import com.chatapp.repository.FirebaseSyncJobRepository;
+import com.google.firebase.ErrorCode;
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.FirebaseAuthException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FirebaseSyncWorkerTest {
+
+  @Mock FirebaseSyncJobRepository repository;
+  @Mock PlatformTransactionManager transactionManager;
+
+  @Test
+  @DisplayName("Should apply claimed jobs through the gateway and clear superseded ones")
+  void Should_apply_claimed_jobs() {
+    InMemoryFirebaseUserGateway gateway = new InMemoryFirebaseUserGateway();
+    when(repository.claim(any(), any(), eq(5), eq(10))).thenReturn(List.of(job(7L, 1)));
+
+    FirebaseSyncWorker worker = newWorker(gateway);
+    worker.poll();
+    worker.shutdown();
+
+    assertEquals("john@gmail.com", gateway.getEmail("1").orElseThrow());
+    verify(repository).lockUid("1");
+    verify(repository).deleteCompleted("1", FirebaseSyncType.UPDATE_EMAIL, 7L);
+  }
+
+  @Test
+  @DisplayName("Should skip a job that a newer job for the same uid replaces")
+  void Should_skip_superseded_job() throws FirebaseAuthException {
+    FirebaseUserGateway gateway = mock(FirebaseUserGateway.class);
+    when(repository.existsByUidAndTypeAndIdGreaterThan("1", FirebaseSyncType.UPDATE_EMAIL, 7L)).thenReturn(true);
+
+    newWorker(gateway).run(job(7L, 1));
+
+    verify(gateway, never()).updateEmail(any(), any());
+    verify(repository, never()).deleteCompleted(any(), any(), anyLong());
+  }
+
+  @Test
+  @DisplayName("Should reschedule a failed job with exponential backoff")
+  void Should_reschedule_failed_job_with_backoff() throws FirebaseAuthException {
+    FirebaseUserGateway gateway = mock(FirebaseUserGateway.class);
+    doThrow(new IllegalStateException("unavailable")).when(gateway).updateEmail("1", "john@gmail.com");
+    OffsetDateTime before = OffsetDateTime.now();
+
+    newWorker(gateway).run(job(7L, 3));
+
+    ArgumentCaptor<OffsetDateTime> nextAttemptAt = ArgumentCaptor.forClass(OffsetDateTime.class);
+    verify(repository).updateAfterFailure(eq(7L), eq(3), nextAttemptAt.capture(), eq("unavailable"));
+    assertFalse(nextAttemptAt.getValue().isBefore(before.plusSeconds(2)));
+    assertFalse(nextAttemptAt.getValue().isAfter(OffsetDateTime.now().plusSeconds(4)));
+    verify(repository, never()).deleteCompleted(any(), any(), anyLong());
+  }
+
+  @Test
+  @DisplayName("Should stop retrying errors that cannot succeed later")
+  void Should_give_up_on_permanent_errors() throws FirebaseAuthException {
+    FirebaseUserGateway gateway = mock(FirebaseUserGateway.class);
+    FirebaseAuthException notFound =
+        new FirebaseAuthException(ErrorCode.NOT_FOUND, "no user record", null, null, AuthErrorCode.USER_NOT_FOUND);
+    doThrow(notFound).when(gateway).updateEmail("1", "john@gmail.com");
+
+    newWorker(gateway).run(job(7L, 1));
+
+    verify(repository).updateAfterFailure(eq(7L), eq(5), any(), eq("no user record"));
+  }
+
+  @Test
+  @DisplayName("Should cap the backoff at the configured maximum")
+  void Should_cap_backoff() {
+    Duration backoff = newWorker(new InMemoryFirebaseUserGateway()).backoff(30);
+    assertTrue(backoff.compareTo(Duration.ofMinutes(10)) <= 0);
+    assertTrue(backoff.compareTo(Duration.ofMinutes(5)) >= 0);
+  }
+
+  private FirebaseSyncWorker newWorker(FirebaseUserGateway gateway) {
+    return new FirebaseSyncWorker(
+        repository,
+        gateway,
+        transactionManager,
+        new SimpleMeterRegistry(),
+        2,
+        10,
+        5,
+        Duration.ofMinutes(1),
+        Duration.ofSeconds(1),
+        Duration.ofMinutes(10));
+  }
+
+  private static FirebaseSyncJob job(long id, int attempts) {
+    return FirebaseSyncJob.builder()
+        .id(id)
+        .uid("1")
+        .type(FirebaseSyncType.UPDATE_EMAIL)
+        .email("john@gmail.com")
+        .attempts(attempts)
+        .build();
+  }
+}
@@ -0,0 +1,46 @@
+package com.chatapp.mapper;
+
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.model.UserAccount;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserAccountMapperTest {
+
+  private final UserAccountMapper mapper = Mappers.getMapper(UserAccountMapper.class);
+
+  @Test
+  @DisplayName("Should map a user account onto a contact")
+  void Should_map_user_account_to_contact() {
+    OffsetDateTime lastActivity = OffsetDateTime.now();
+    UserAccount userAccount = UserAccount.builder()
+        .uid("1")
+        .email("johndoe@gmail.com")
+        .username("johndoe")
+        .firstName("John")
+        .lastName("Doe")
+        .address("1 Waverly Ave")
+        .phoneNumber("000-000-0000")
+        .photoUrl("url")
+        .status("online")
+        .lastActivity(lastActivity)
+        .build();
+
+    ContactDTO contact = mapper.toContact(userAccount);
+
+    assertEquals("1", contact.getId());
+    assertEquals("johndoe@gmail.com", contact.getEmail());
+    assertEquals("johndoe", contact.getUsername());
+    assertEquals("John Doe", contact.getName());
+    assertEquals("1 Waverly Ave", contact.getAddress());
+    assertEquals("000-000-0000", contact.getPhoneNumber());
+    assertEquals("url", contact.getAvatar());
+    assertEquals("online", contact.getStatus());
+    assertEquals(lastActivity, contact.getLastActivity());
+  }
+}
@@ -0,0 +1,60 @@
+package com.chatapp.outbox;
+
+import com.chatapp.model.OutboxEvent;
+import com.chatapp.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+  @Mock OutboxEventRepository repository;
+  @Mock OutboxSink sink;
+  @Mock PlatformTransactionManager transactionManager;
+
+  @Test
+  @DisplayName("Should publish and delete full batches until the outbox is drained")
+  void Should_drain_outbox_in_batches() {
+    List<OutboxEvent> first = List.of(event(1), event(2));
+    List<OutboxEvent> second = List.of(event(3));
+    when(repository.lockNextBatch(2)).thenReturn(first, second);
+
+    newRelay().relay();
+
+    verify(sink).publish(first);
+    verify(sink).publish(second);
+    verify(repository).deleteAllInBatch(first);
+    verify(repository).deleteAllInBatch(second);
+    verify(repository, times(2)).lockNextBatch(2);
+  }
+
+  @Test
+  @DisplayName("Should keep events in the outbox when the sink fails")
+  void Should_keep_events_when_sink_fails() {
+    List<OutboxEvent> batch = List.of(event(1), event(2));
+    when(repository.lockNextBatch(2)).thenReturn(batch);
+    doThrow(new IllegalStateException("sink down")).when(sink).publish(batch);
+
+    newRelay().relay();
+
+    verify(repository, never()).deleteAllInBatch(anyList());
+    verify(transactionManager).rollback(any());
+  }
+
+  private OutboxRelay newRelay() {
+    return new OutboxRelay(repository, sink, transactionManager, new SimpleMeterRegistry(), 2);
+  }
+
+  private static OutboxEvent event(long id) {
+    return OutboxEvent.builder().id(id).aggregateId("1").payload("{}").build();
+  }
+}
@@ -0,0 +1,170 @@
+package com.chatapp.presence;
+
+import com.chatapp.cache.CacheInvalidationBus;
+import com.chatapp.cache.InMemoryCacheInvalidationBus;
+import com.chatapp.model.UserAccount;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceBufferTest {
+
+  @Mock JdbcTemplate jdbcTemplate;
+  @Mock ApplicationEventPublisher eventPublisher;
+
+  @Test
+  @DisplayName("Should coalesce heartbeats per uid into one batched row")
+  void Should_coalesce_heartbeats_into_one_row() {
+    PresenceBuffer buffer = newPresenceBuffer();
+    buffer.heartbeat("1", "online");
+    buffer.heartbeat("1", "away");
+    buffer.heartbeat("2", "online");
+
+    buffer.flush();
+
+    Map<String, String> flushed = Map.of("1", "away", "2", "online");
+    List<Map.Entry<String, Presence>> batch = flushedBatch();
+    assertEquals(2, batch.size());
+    batch.forEach(entry -> assertEquals(flushed.get(entry.getKey()), entry.getValue().getStatus()));
+  }
+
+  @Test
+  @DisplayName("Should not write anything when no heartbeat arrived since the last flush")
+  void Should_skip_flush_without_heartbeats() {
+    PresenceBuffer buffer = newPresenceBuffer();
+    buffer.heartbeat("1", "online");
+    buffer.flush();
+
+    buffer.flush();
+
+    verify(jdbcTemplate, times(1))
+        .batchUpdate(eq(PresenceBuffer.FLUSH_SQL), anyCollection(), eq(500), any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  @Test
+  @DisplayName("Should keep heartbeats dirty when the batch update fails")
+  void Should_retry_failed_flush() {
+    PresenceBuffer buffer = newPresenceBuffer();
+    buffer.heartbeat("1", "online");
+    when(jdbcTemplate.batchUpdate(
+            eq(PresenceBuffer.FLUSH_SQL), anyCollection(), eq(500), any(ParameterizedPreparedStatementSetter.class)))
+        .thenThrow(new QueryTimeoutException("timeout"))
+        .thenReturn(new int[][] {{1}});
+
+    buffer.flush();
+    buffer.flush();
+
+    verify(jdbcTemplate, times(2))
+        .batchUpdate(eq(PresenceBuffer.FLUSH_SQL), anyCollection(), eq(500), any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  @Test
+  @DisplayName("Should announce status changes but not repeated heartbeats")
+  void Should_publish_only_status_changes() {
+    PresenceBuffer buffer = newPresenceBuffer();
+    buffer.heartbeat("1", "online");
+    buffer.heartbeat("1", "online");
+    buffer.heartbeat("1", "away");
+
+    verify(eventPublisher, times(2)).publishEvent(any(PresenceChangedEvent.class));
+  }
+
+  @Test
+  @DisplayName("Should overlay the live presence without touching the cached account")
+  void Should_overlay_live_presence() {
+    PresenceBuffer buffer = newPresenceBuffer();
+    UserAccount cached = UserAccount.builder().uid("1").status("offline").build();
+    buffer.heartbeat("1", "online");
+
+    UserAccount overlaid = buffer.overlay(cached);
+
+    assertEquals("online", overlaid.getStatus());
+    assertEquals("offline", cached.getStatus());
+  }
+
+  @Test
+  @DisplayName("Should announce and store an expired presence as offline")
+  void Should_publish_offline_when_presence_expires() {
+    PresenceBuffer buffer = newPresenceBuffer(Duration.ofMinutes(-1));
+    buffer.heartbeat("1", "online");
+
+    buffer.flush();
+
+    ArgumentCaptor<PresenceChangedEvent> events = ArgumentCaptor.forClass(PresenceChangedEvent.class);
+    verify(eventPublisher, times(2)).publishEvent(events.capture());
+    assertEquals("offline", events.getValue().getStatus());
+    assertTrue(buffer.get("1").isEmpty());
+
+    buffer.flush();
+
+    verify(jdbcTemplate, times(2))
+        .batchUpdate(eq(PresenceBuffer.FLUSH_SQL), anyCollection(), eq(500), any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  @Test
+  @DisplayName("Should learn presence reported to other nodes")
+  void Should_apply_presence_announced_by_other_nodes() {
+    CacheInvalidationBus invalidationBus = new InMemoryCacheInvalidationBus();
+    PresenceBuffer local = newPresenceBuffer(invalidationBus, Duration.ofMinutes(5));
+    PresenceBuffer remote = newPresenceBuffer(invalidationBus, Duration.ofMinutes(5));
+    remote.heartbeat("1", "online");
+
+    remote.flush();
+
+    assertEquals("online", local.get("1").map(Presence::getStatus).orElse(null));
+    verify(eventPublisher, times(2)).publishEvent(any(PresenceChangedEvent.class));
+  }
+
+  @Test
+  @DisplayName("Should announce repeated heartbeats only once per refresh interval")
+  void Should_announce_only_changes_and_refreshes() {
+    CacheInvalidationBus invalidationBus = mock(CacheInvalidationBus.class);
+    PresenceBuffer buffer = newPresenceBuffer(invalidationBus, Duration.ofMinutes(5));
+    buffer.heartbeat("1", "online");
+    buffer.flush();
+    buffer.heartbeat("1", "online");
+    buffer.flush();
+
+    verify(invalidationBus, times(1)).publish(eq(PresenceBuffer.PRESENCE_TOPIC), anyCollection());
+  }
+
+  private PresenceBuffer newPresenceBuffer() {
+    return newPresenceBuffer(Duration.ofMinutes(5));
+  }
+
+  private PresenceBuffer newPresenceBuffer(Duration liveTtl) {
+    return newPresenceBuffer(new InMemoryCacheInvalidationBus(), liveTtl);
+  }
+
+  private PresenceBuffer newPresenceBuffer(CacheInvalidationBus invalidationBus, Duration liveTtl) {
+    return new PresenceBuffer(jdbcTemplate, invalidationBus, eventPublisher, new SimpleMeterRegistry(), 500, liveTtl);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Map.Entry<String, Presence>> flushedBatch() {
+    ArgumentCaptor<Collection<Map.Entry<String, Presence>>> batch = ArgumentCaptor.forClass(Collection.class);
+    verify(jdbcTemplate)
+        .batchUpdate(eq(PresenceBuffer.FLUSH_SQL), batch.capture(), eq(500), any(ParameterizedPreparedStatementSetter.class));
+    return List.copyOf(batch.getValue());
+  }
+}
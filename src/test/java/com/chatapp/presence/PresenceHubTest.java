@@ -0,0 +1,135 @@
+package com.chatapp.presence;
+
+import com.chatapp.exception.InvalidUidsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceHubTest {
+
+  @Mock PresenceBuffer presenceBuffer;
+  @Mock ExecutorService dispatcher;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  @DisplayName("Should drop a subscriber whose queue overflows and stop routing events to it")
+  void Should_drop_subscriber_on_queue_overflow() {
+    PresenceHub hub = newPresenceHub(1);
+    hub.subscribe(List.of("1"));
+
+    hub.onPresenceChanged(event("1", "online"));
+    hub.onPresenceChanged(event("1", "away"));
+    hub.onPresenceChanged(event("1", "offline"));
+
+    assertEquals(1, meterRegistry.get("presence.stream.dropped").counter().count());
+    assertEquals(0, subscriberCount());
+    verify(dispatcher, times(1)).execute(any(Runnable.class));
+  }
+
+  @Test
+  @DisplayName("Should schedule one drain per burst and a new one once it finished")
+  void Should_reschedule_drain_after_it_finished() {
+    PresenceHub hub = newPresenceHub(8);
+    hub.subscribe(List.of("1"));
+
+    hub.onPresenceChanged(event("1", "online"));
+    hub.onPresenceChanged(event("1", "away"));
+    ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+    verify(dispatcher, times(1)).execute(drain.capture());
+
+    drain.getValue().run();
+    hub.onPresenceChanged(event("1", "online"));
+
+    verify(dispatcher, times(2)).execute(any(Runnable.class));
+  }
+
+  @Test
+  @DisplayName("Should try to schedule again after the dispatcher rejected a drain")
+  void Should_reschedule_after_rejected_drain() {
+    doThrow(new RejectedExecutionException()).doNothing().when(dispatcher).execute(any(Runnable.class));
+    PresenceHub hub = newPresenceHub(8);
+    hub.subscribe(List.of("1"));
+
+    hub.onPresenceChanged(event("1", "online"));
+    hub.onPresenceChanged(event("1", "away"));
+
+    verify(dispatcher, times(2)).execute(any(Runnable.class));
+  }
+
+  @Test
+  @DisplayName("Should forget a subscriber whose connection is gone")
+  void Should_remove_subscriber_after_failed_send() {
+    PresenceHub hub = newPresenceHub(8);
+    SseEmitter emitter = hub.subscribe(List.of("1", "2"));
+    hub.subscribe(List.of("2"));
+    emitter.complete();
+
+    ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+    verify(dispatcher, times(2)).execute(drain.capture());
+    drain.getAllValues().forEach(Runnable::run);
+
+    assertEquals(1, subscriberCount());
+    hub.onPresenceChanged(event("1", "online"));
+    verify(dispatcher, times(2)).execute(any(Runnable.class));
+  }
+
+  @Test
+  @DisplayName("Should send the snapshot as one event when more uids are watched than the queue holds")
+  void Should_keep_subscriber_watching_more_uids_than_queue_capacity() {
+    OffsetDateTime now = OffsetDateTime.now();
+    when(presenceBuffer.snapshot(anyCollection())).thenReturn(Map.of(
+        "1", new Presence("online", now), "2", new Presence("away", now), "3", new Presence("offline", now)));
+    PresenceHub hub = newPresenceHub(1);
+
+    hub.subscribe(List.of("1", "2", "3"));
+
+    assertEquals(1, subscriberCount());
+    assertEquals(0, meterRegistry.get("presence.stream.dropped").counter().count());
+    verify(dispatcher, times(1)).execute(any(Runnable.class));
+  }
+
+  @Test
+  @DisplayName("Should reject a subscription with a null uid")
+  void Should_reject_subscription_with_null_uid() {
+    PresenceHub hub = newPresenceHub(8);
+
+    assertThrows(InvalidUidsException.class, () -> hub.subscribe(Arrays.asList("1", null)));
+    assertEquals(0, subscriberCount());
+    verifyNoInteractions(presenceBuffer);
+  }
+
+  private PresenceHub newPresenceHub(int queueCapacity) {
+    return new PresenceHub(
+        presenceBuffer, meterRegistry, 10, queueCapacity, Duration.ofMinutes(1), Duration.ofSeconds(10), dispatcher);
+  }
+
+  private double subscriberCount() {
+    return meterRegistry.get("presence.stream.subscribers").gauge().value();
+  }
+
+  private static PresenceChangedEvent event(String uid, String status) {
+    return new PresenceChangedEvent(uid, status, OffsetDateTime.now());
+  }
+}
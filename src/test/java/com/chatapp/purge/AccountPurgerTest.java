@@ -0,0 +1,134 @@
+package com.chatapp.purge;
+
+import com.chatapp.firebase.FirebaseSyncQueue;
+import com.chatapp.model.ReleasedPhotoKey;
+import com.chatapp.model.UserAccount;
+import com.chatapp.repository.ReleasedPhotoKeyRepository;
+import com.chatapp.repository.UserAccountRepository;
+import com.chatapp.storage.PhotoStorage;
+import com.chatapp.storage.ProfilePhotoUploader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountPurgerTest {
+
+  @Mock UserAccountRepository repository;
+  @Mock ReleasedPhotoKeyRepository releasedPhotoKeyRepository;
+  @Mock PhotoStorage photoStorage;
+  @Mock ProfilePhotoUploader profilePhotoUploader;
+  @Mock FirebaseSyncQueue firebaseSyncQueue;
+  @Mock PlatformTransactionManager transactionManager;
+  @Mock ExecutorService executor;
+
+  @Test
+  @DisplayName("Should purge the row, release its photo and queue the Firebase deletion on the purger thread")
+  void Should_purge_account_on_own_executor() {
+    UserAccount userAccount = UserAccount.builder().uid("1").photoKey("photos/sha256/ab").build();
+    when(repository.findDeletedBefore(any(), eq(PageRequest.of(0, 10)))).thenReturn(List.of(userAccount));
+    when(repository.purge("1")).thenReturn(1);
+    AccountPurger accountPurger = newPurger();
+
+    accountPurger.purge();
+
+    verifyNoInteractions(repository);
+    ArgumentCaptor<Runnable> batch = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).execute(batch.capture());
+    batch.getValue().run();
+
+    verify(releasedPhotoKeyRepository).release("photos/sha256/ab");
+    verify(firebaseSyncQueue).enqueueUserDeletion("1");
+    verifyNoInteractions(photoStorage);
+  }
+
+  @Test
+  @DisplayName("Should not start another batch while one is still running")
+  void Should_skip_run_while_batch_is_running() {
+    AccountPurger accountPurger = newPurger();
+
+    accountPurger.purge();
+    accountPurger.purge();
+
+    verify(executor, times(1)).execute(any(Runnable.class));
+  }
+
+  @Test
+  @DisplayName("Should delete the blobs of a released photo that no row references")
+  void Should_collect_unreferenced_photo() throws IOException {
+    when(releasedPhotoKeyRepository.findOldest(PageRequest.of(0, 10)))
+        .thenReturn(List.of(new ReleasedPhotoKey("photos/sha256/ab", OffsetDateTime.now())));
+    when(repository.existsByPhotoKey("photos/sha256/ab")).thenReturn(false);
+    AccountPurger accountPurger = newPurger();
+
+    accountPurger.purge();
+    ArgumentCaptor<Runnable> batch = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).execute(batch.capture());
+    batch.getValue().run();
+
+    InOrder inOrder = inOrder(repository, photoStorage, releasedPhotoKeyRepository);
+    inOrder.verify(repository).lockPhotoKey("photos/sha256/ab");
+    inOrder.verify(repository).existsByPhotoKey("photos/sha256/ab");
+    inOrder.verify(photoStorage).delete("photos/sha256/ab/original");
+    inOrder.verify(releasedPhotoKeyRepository).remove("photos/sha256/ab");
+    verify(photoStorage).delete("photos/sha256/ab/48.jpg");
+    verify(photoStorage).delete("photos/sha256/ab/128.jpg");
+    verify(photoStorage).delete("photos/sha256/ab/512.jpg");
+    verify(profilePhotoUploader).forget("photos/sha256/ab");
+  }
+
+  @Test
+  @DisplayName("Should keep the blobs of a released photo that another account still uses")
+  void Should_keep_shared_photo() throws IOException {
+    when(repository.existsByPhotoKey("photos/sha256/ab")).thenReturn(true);
+
+    newPurger().collect("photos/sha256/ab");
+
+    verifyNoInteractions(photoStorage);
+    verify(profilePhotoUploader, never()).forget("photos/sha256/ab");
+    verify(releasedPhotoKeyRepository).remove("photos/sha256/ab");
+  }
+
+  @Test
+  @DisplayName("Should keep the released photo when a blob cannot be deleted")
+  void Should_retry_when_blob_deletion_fails() throws IOException {
+    when(repository.existsByPhotoKey("photos/sha256/ab")).thenReturn(false);
+    doThrow(new IOException("unavailable")).when(photoStorage).delete("photos/sha256/ab/original");
+
+    assertThrows(IOException.class, () -> newPurger().collect("photos/sha256/ab"));
+
+    verify(profilePhotoUploader, never()).forget("photos/sha256/ab");
+    verify(releasedPhotoKeyRepository, never()).remove("photos/sha256/ab");
+  }
+
+  private AccountPurger newPurger() {
+    return new AccountPurger(
+        repository,
+        releasedPhotoKeyRepository,
+        photoStorage,
+        profilePhotoUploader,
+        firebaseSyncQueue,
+        transactionManager,
+        new SimpleMeterRegistry(),
+        10,
+        Duration.ofHours(1),
+        Duration.ZERO,
+        executor);
+  }
+}
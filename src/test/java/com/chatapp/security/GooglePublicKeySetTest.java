@@ -0,0 +1,48 @@
+package com.chatapp.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GooglePublicKeySetTest {
+
+  @TempDir Path keyDirectory;
+
+  @Test
+  @DisplayName("Should keep the cached keys and retry soon when the key document is malformed")
+  void Should_keep_keys_when_document_is_malformed() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    RSAPublicKey publicKey = (RSAPublicKey) generator.generateKeyPair().getPublic();
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    Path keyFile = Files.writeString(keyDirectory.resolve("jwks.json"), "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"key-1\","
+        + "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+        + "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}");
+    GooglePublicKeySet keySet = new GooglePublicKeySet(keyFile.toUri().toString(), Duration.ofHours(1));
+    assertEquals(Duration.ofHours(1), keySet.refresh());
+
+    Files.writeString(keyFile, "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"key-2\",\"n\":\"not base64!\",\"e\":\"AQAB\"}]}");
+
+    assertEquals(Duration.ofMinutes(1), keySet.refresh());
+    assertEquals(publicKey, keySet.getKey("key-1"));
+  }
+
+  @Test
+  @DisplayName("Should not replace the cached keys with an empty key set")
+  void Should_keep_keys_when_document_has_no_keys() throws Exception {
+    Path keyFile = Files.writeString(keyDirectory.resolve("jwks.json"), "{\"unexpected\":true}");
+    GooglePublicKeySet keySet = new GooglePublicKeySet(keyFile.toUri().toString(), Duration.ofHours(1));
+
+    assertEquals(Duration.ofMinutes(1), keySet.refresh());
+    assertNull(keySet.getKey("key-1"));
+  }
+}
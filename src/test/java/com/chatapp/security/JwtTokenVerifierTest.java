@@ -0,0 +1,110 @@
+package com.chatapp.security;
+
+import com.chatapp.exception.InvalidTokenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenVerifierTest {
+
+  private static final String PROJECT_ID = "chat-app";
+  private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+  @TempDir Path keyDirectory;
+
+  private KeyPair keyPair;
+  private JwtTokenVerifier verifier;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+    RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    String jwks = "{\"keys\":[{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"key-1\","
+        + "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+        + "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+    Path keyFile = Files.writeString(keyDirectory.resolve("jwks.json"), jwks);
+
+    GooglePublicKeySet keySet = new GooglePublicKeySet(keyFile.toUri().toString(), Duration.ofHours(1));
+    keySet.refresh();
+    verifier = new JwtTokenVerifier(keySet, PROJECT_ID, Duration.ZERO, Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  @DisplayName("Should return uid and expiry for a valid token")
+  void Should_return_uid_for_valid_token() throws Exception {
+    String token = sign("key-1", claims(PROJECT_ID, NOW.plusSeconds(3600)));
+    VerifiedToken verifiedToken = verifier.verify(token);
+    assertEquals("1", verifiedToken.getUid());
+    assertEquals(NOW.plusSeconds(3600), verifiedToken.getExpiresAt());
+  }
+
+  @Test
+  @DisplayName("Should reject an expired token")
+  void Should_reject_expired_token() throws Exception {
+    String token = sign("key-1", claims(PROJECT_ID, NOW.minusSeconds(1)));
+    assertThrows(InvalidTokenException.class, () -> verifier.verify(token));
+  }
+
+  @Test
+  @DisplayName("Should reject a token issued for another project")
+  void Should_reject_token_for_other_audience() throws Exception {
+    String token = sign("key-1", claims("other-app", NOW.plusSeconds(3600)));
+    assertThrows(InvalidTokenException.class, () -> verifier.verify(token));
+  }
+
+  @Test
+  @DisplayName("Should reject a token signed with an unknown key")
+  void Should_reject_token_with_unknown_key() throws Exception {
+    String token = sign("key-2", claims(PROJECT_ID, NOW.plusSeconds(3600)));
+    assertThrows(InvalidTokenException.class, () -> verifier.verify(token));
+  }
+
+  @Test
+  @DisplayName("Should reject a token whose payload was tampered with")
+  void Should_reject_tampered_token() throws Exception {
+    String token = sign("key-1", claims(PROJECT_ID, NOW.plusSeconds(3600)));
+    String[] parts = token.split("\\.");
+    String forgedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+        claims(PROJECT_ID, NOW.plusSeconds(3600)).replace("\"sub\":\"1\"", "\"sub\":\"2\"")
+            .getBytes(StandardCharsets.UTF_8));
+    String forged = parts[0] + "." + forgedPayload + "." + parts[2];
+    assertThrows(InvalidTokenException.class, () -> verifier.verify(forged));
+  }
+
+  private String claims(String audience, Instant expiresAt) {
+    long issuedAt = NOW.minusSeconds(60).getEpochSecond();
+    return "{\"iss\":\"https://securetoken.google.com/" + audience + "\",\"aud\":\"" + audience + "\","
+        + "\"auth_time\":" + issuedAt + ",\"user_id\":\"1\",\"sub\":\"1\",\"iat\":" + issuedAt + ","
+        + "\"exp\":" + expiresAt.getEpochSecond() + ",\"firebase\":{\"identities\":{},\"sign_in_provider\":\"password\"}}";
+  }
+
+  private String sign(String kid, String claims) throws Exception {
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    String header = "{\"alg\":\"RS256\",\"kid\":\"" + kid + "\",\"typ\":\"JWT\"}";
+    String signedContent = encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+        + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+    Signature signature = Signature.getInstance("SHA256withRSA");
+    signature.initSign(keyPair.getPrivate());
+    signature.update(signedContent.getBytes(StandardCharsets.US_ASCII));
+    return signedContent + "." + encoder.encodeToString(signature.sign());
+  }
+}
@@ -0,0 +1,43 @@
+package com.chatapp.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VerifiedTokenCacheTest {
+
+  @Mock TokenVerifier tokenVerifier;
+
+  @Test
+  @DisplayName("Should verify a token only once while it has not expired")
+  void Should_verify_token_once_while_not_expired() {
+    when(tokenVerifier.verify("token"))
+        .thenReturn(new VerifiedToken("1", Instant.now().plusSeconds(3600)));
+    VerifiedTokenCache cache = new VerifiedTokenCache(tokenVerifier, new SimpleMeterRegistry(), 100);
+
+    assertEquals("1", cache.verify("token").getUid());
+    assertEquals("1", cache.verify("token").getUid());
+    verify(tokenVerifier, times(1)).verify("token");
+  }
+
+  @Test
+  @DisplayName("Should verify again when the cached token has already expired")
+  void Should_verify_again_when_token_expired() {
+    when(tokenVerifier.verify("token"))
+        .thenReturn(new VerifiedToken("1", Instant.now().minusSeconds(1)));
+    VerifiedTokenCache cache = new VerifiedTokenCache(tokenVerifier, new SimpleMeterRegistry(), 100);
+
+    cache.verify("token");
+    cache.verify("token");
+    verify(tokenVerifier, times(2)).verify("token");
+  }
+}
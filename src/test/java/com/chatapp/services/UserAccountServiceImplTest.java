@@ -1,74 +1,216 @@
 package com.chatapp.services;
 
+import com.chatapp.availability.AvailabilityIndex;
+import com.chatapp.availability.UsernameSuggester;
+import com.chatapp.bulk.UserAccountExporter;
+import com.chatapp.bulk.UserAccountImporter;
+import com.chatapp.cache.CacheInvalidationBus;
+import com.chatapp.config.CacheConfig;
+import com.chatapp.dto.AccountChange;
+import com.chatapp.dto.AvailabilityRequest;
+import com.chatapp.dto.AvailabilityResponse;
+import com.chatapp.dto.BatchLookupResponse;
+import com.chatapp.dto.ChangeCursor;
+import com.chatapp.dto.ChangesResponse;
+import com.chatapp.dto.ContactDTO;
+import com.chatapp.exception.BulkAccessNotAllowedException;
+import com.chatapp.exception.InvalidUidsException;
+import com.chatapp.exception.UserAccountExistsException;
+import com.chatapp.exception.UserAccountModifiedException;
 import com.chatapp.exception.UserAccountNotFoundException;
+import com.chatapp.firebase.FirebaseSyncQueue;
+import com.chatapp.mapper.UserAccountMapper;
+import com.chatapp.model.AccountTombstone;
+import com.chatapp.model.OutboxEventType;
+import com.chatapp.model.PhotoStatus;
+import com.chatapp.model.PresenceStatus;
 import com.chatapp.model.UserAccount;
 import com.chatapp.model.UserPersonalInfo;
+import com.chatapp.outbox.OutboxWriter;
+import com.chatapp.presence.PresenceBuffer;
+import com.chatapp.repository.AccountTombstoneRepository;
 import com.chatapp.repository.UserAccountRepository;
 import com.chatapp.services.implementation.UserAccountServiceImpl;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.UserRecord.UpdateRequest;
-import com.google.firebase.cloud.StorageClient;
+import com.chatapp.storage.ProfilePhotoProcessor;
+import com.chatapp.storage.ProfilePhotoUploader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.mock;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class UserAccountServiceImplTest {
 
-  @Mock StorageClient client;
+  @Mock ProfilePhotoUploader profilePhotoUploader;
+  @Mock ProfilePhotoProcessor profilePhotoProcessor;
   @Mock UserAccountRepository repository;
-  @Mock FirebaseAuth firebaseAuth;
+  @Mock AccountTombstoneRepository tombstoneRepository;
+  @Mock FirebaseSyncQueue firebaseSyncQueue;
+  @Mock CacheInvalidationBus invalidationBus;
+  @Mock PlatformTransactionManager transactionManager;
+  @Mock JdbcTemplate jdbcTemplate;
+  @Mock ApplicationEventPublisher eventPublisher;
+  @Mock UserAccountImporter userAccountImporter;
+  @Mock UserAccountExporter userAccountExporter;
+  @Mock OutboxWriter outboxWriter;
+
+  private final CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.USER_ACCOUNTS);
+
+  private UserAccountService newUserAccountService() {
+    AvailabilityIndex availabilityIndex =
+        new AvailabilityIndex(repository, invalidationBus, transactionManager, new SimpleMeterRegistry(), 1000, 0.01);
+    return new UserAccountServiceImpl(
+        repository,
+        tombstoneRepository,
+        profilePhotoUploader,
+        profilePhotoProcessor,
+        firebaseSyncQueue,
+        invalidationBus,
+        availabilityIndex,
+        new UsernameSuggester(availabilityIndex, repository),
+        new PresenceBuffer(
+            jdbcTemplate, invalidationBus, eventPublisher, new SimpleMeterRegistry(), 500, Duration.ofMinutes(5)),
+        Mappers.getMapper(UserAccountMapper.class),
+        cacheManager,
+        userAccountImporter,
+        userAccountExporter,
+        outboxWriter,
+        transactionManager,
+        Set.of("admin"));
+  }
 
   @Test
   @DisplayName("Should return user account when uid exist in database ")
   void Should_return_user_when_user_exist_in_database() {
     when(repository.findById("1")).thenReturn(Optional.of(new UserAccount()));
-    UserAccountService userAccountService =
-        new UserAccountServiceImpl(repository, client, firebaseAuth);
+    UserAccountService userAccountService = newUserAccountService();
     assertNotNull(userAccountService.findUserAccount("1"));
   }
 
+  @Test
+  @DisplayName("Should show the live presence on the account without caching it")
+  void Should_overlay_live_presence_outside_the_cache() {
+    when(repository.findById("1")).thenReturn(Optional.of(UserAccount.builder().uid("1").status("offline").build()));
+    UserAccountService userAccountService = newUserAccountService();
+
+    userAccountService.updatePresence(PresenceStatus.ONLINE, "1");
+
+    assertEquals("online", userAccountService.findUserAccount("1").getStatus());
+    UserAccount cached = cacheManager.getCache(CacheConfig.USER_ACCOUNTS).get("1", UserAccount.class);
+    assertEquals("offline", cached.getStatus());
+  }
+
   @Test
   @DisplayName("Should throw exception when user is not found")
   void Should_throw_when_user_is_not_found() {
     when(repository.findById("1")).thenReturn(Optional.empty());
-    UserAccountService userAccountService =
-        new UserAccountServiceImpl(repository, client, firebaseAuth);
+    UserAccountService userAccountService = newUserAccountService();
     assertThrows(UserAccountNotFoundException.class, () -> userAccountService.findUserAccount("1"));
   }
 
+  @Test
+  @DisplayName("Should insert a new user account even when the client sent a version")
+  void Should_register_new_user_account() {
+    UserAccount user = UserAccount.builder().uid("1").username("john").email("john@gmail.com").version(7L).build();
+    when(repository.save(user)).thenAnswer(invocation -> {
+      UserAccount saved = invocation.getArgument(0);
+      assertNull(saved.getVersion());
+      saved.setVersion(0L);
+      return saved;
+    });
+    UserAccountService userAccountService = newUserAccountService();
+
+    ResponseEntity<UserAccount> response = userAccountService.addUserAccount(user);
+
+    assertEquals(201, response.getStatusCodeValue());
+    assertEquals("\"0\"", response.getHeaders().getETag());
+  }
+
+  @Test
+  @DisplayName("Should refuse to register a uid that already has an account, even a deleted one")
+  void Should_refuse_registering_existing_uid() {
+    when(repository.existsById("1")).thenReturn(true);
+    UserAccountService userAccountService = newUserAccountService();
+
+    assertThrows(
+        UserAccountExistsException.class,
+        () -> userAccountService.addUserAccount(UserAccount.builder().uid("1").username("john").build()));
+    verify(repository, never()).save(any(UserAccount.class));
+  }
+
+  @Test
+  @DisplayName("Should refuse bulk imports from users that are not allowed to import")
+  void Should_refuse_import_from_other_users() {
+    UserAccountService userAccountService = newUserAccountService();
+    assertThrows(
+        BulkAccessNotAllowedException.class,
+        () -> userAccountService.importUserAccounts(
+            new ByteArrayInputStream(new byte[0]), MediaType.parseMediaType("text/csv"), "1"));
+  }
+
   @Test
   @DisplayName("Should return response entity when user is successfully updated")
   void Should_successfully_update_user_when_user_exists() {
-    UserAccount user = new UserAccount();
-    when(repository.existsById("1")).thenReturn(true);
-    when(repository.save(user)).thenReturn(user);
-    UserAccountService userAccountService =
-        new UserAccountServiceImpl(repository, client, firebaseAuth);
-    ResponseEntity<UserAccount> response = userAccountService.updateUserAccount(user, "1");
+    UserAccount user = UserAccount.builder().version(4L).build();
+    when(repository.updateUserAccount("1", user, 3L)).thenReturn(Optional.of(user));
+    UserAccountService userAccountService = newUserAccountService();
+    ResponseEntity<UserAccount> response = userAccountService.updateUserAccount(user, "1", 3L);
     assertNotNull(response.getBody());
+    assertEquals("\"4\"", response.getHeaders().getETag());
+  }
+
+  @Test
+  @DisplayName("Should report a conflict when the user was modified since the expected version")
+  void Should_throw_when_user_version_does_not_match() {
+    UserAccount user = new UserAccount();
+    when(repository.updateUserAccount("1", user, 3L)).thenReturn(Optional.empty());
+    when(repository.existsByUidAndDeletedAtIsNull("1")).thenReturn(true);
+    UserAccountService userAccountService = newUserAccountService();
+    assertThrows(
+        UserAccountModifiedException.class, () -> userAccountService.updateUserAccount(user, "1", 3L));
   }
 
   @Test
   @DisplayName("Should throw when user to be updated does not exist")
   void Should_throw_when_user_to_be_updated_does_not_exist() {
     UserAccount user = new UserAccount();
-    when(repository.existsById("1")).thenReturn(false);
-    UserAccountService userAccountService =
-        new UserAccountServiceImpl(repository, client, firebaseAuth);
+    when(repository.updateUserAccount("1", user)).thenReturn(Optional.empty());
+    UserAccountService userAccountService = newUserAccountService();
     assertThrows(
-        UserAccountNotFoundException.class, () -> userAccountService.updateUserAccount(user, "1"));
+        UserAccountNotFoundException.class, () -> userAccountService.updateUserAccount(user, "1", null));
   }
 
   @Test
@@ -76,44 +218,27 @@ class UserAccountServiceImplTest {
   void Should_successfully_update_user_personal_information_when_user_exists() {
     UserPersonalInfo personalInfo =
         new UserPersonalInfo("John", "Doe", "1 Waverly Ave", "New York", "NY", "USA", "00000");
-    UserAccount testUser =
-        new UserAccount(
-            "1",
-            "johndoe@gmail.com",
-            "johndoe",
-            "Jane",
-            "Do",
-            "2 Waverly Ave",
-            "New Jersey",
-            "NJ",
-            "USA",
-            "10000",
-            "online",
-            OffsetDateTime.now(),
-            "000-000-0000",
-            "url");
     UserAccount testUpdatedUser =
-        new UserAccount(
-            "1",
-            "johndoe@gmail.com",
-            "johndoe",
-            "John",
-            "Doe",
-            "1 Waverly Ave",
-            "New York",
-            "NY",
-            "USA",
-            "00000",
-            "online",
-            OffsetDateTime.now(),
-            "000-000-0000",
-            "url");
-    when(repository.findById("1")).thenReturn(Optional.of(testUser));
-    when(repository.save(testUpdatedUser)).thenReturn(testUpdatedUser);
-    UserAccountService userAccountService =
-        new UserAccountServiceImpl(repository, client, firebaseAuth);
+        UserAccount.builder()
+            .uid("1")
+            .email("johndoe@gmail.com")
+            .username("johndoe")
+            .firstName("John")
+            .lastName("Doe")
+            .address("1 Waverly Ave")
+            .city("New York")
+            .state("NY")
+            .country("USA")
+            .zipCode("00000")
+            .status("online")
+            .lastActivity(OffsetDateTime.now())
+            .phoneNumber("000-000-0000")
+            .photoUrl("url")
+            .build();
+    when(repository.updatePersonalInfo("1", personalInfo)).thenReturn(Optional.of(testUpdatedUser));
+    UserAccountService userAccountService = newUserAccountService();
     ResponseEntity<UserAccount> response =
-        userAccountService.updateUserPersonalInfo(personalInfo, "1");
+        userAccountService.updateUserPersonalInfo(personalInfo, "1", null);
     assertEquals(response.getBody(), testUpdatedUser);
   }
 
@@ -122,18 +247,18 @@ class UserAccountServiceImplTest {
   void Should_throw_when_updating_personal_info_and_user_does_not_exist() {
     UserPersonalInfo personalInfo =
         new UserPersonalInfo("John", "Doe", "1 Waverly Ave", "New York", "NY", "USA", "00000");
-    when(repository.findById("1")).thenReturn(Optional.empty());
-    UserAccountService userAccountService = new UserAccountServiceImpl(repository, client, firebaseAuth);
+    when(repository.updatePersonalInfo("1", personalInfo)).thenReturn(Optional.empty());
+    UserAccountService userAccountService = newUserAccountService();
     assertThrows(
         UserAccountNotFoundException.class,
-        () -> userAccountService.updateUserPersonalInfo(personalInfo, "1"));
+        () -> userAccountService.updateUserPersonalInfo(personalInfo, "1", null));
   }
 
   @Test
   @DisplayName("Should return true if username exists in database")
   void Should_return_true_if_username_exists() {
     when(repository.existsUserAccountByUsername("john")).thenReturn(true);
-    UserAccountService userAccountService = new UserAccountServiceImpl(repository, client, firebaseAuth);
+    UserAccountService userAccountService = newUserAccountService();
     assertTrue(userAccountService.checkUsernameAvailability("john"));
   }
 
@@ -141,7 +266,7 @@ class UserAccountServiceImplTest {
   @DisplayName("Should return false if username does not exist in database")
   void Should_return_false_if_username_does_not_exist() {
     when(repository.existsUserAccountByUsername("john")).thenReturn(false);
-    UserAccountService userAccountService = new UserAccountServiceImpl(repository, client, firebaseAuth);
+    UserAccountService userAccountService = newUserAccountService();
     assertFalse(userAccountService.checkUsernameAvailability("john"));
   }
 
@@ -149,7 +274,7 @@ class UserAccountServiceImplTest {
   @DisplayName("Should return true if email exists in database")
   void Should_return_true_if_email_exists() {
     when(repository.existsUserAccountByEmail("john@gmail.com")).thenReturn(true);
-    UserAccountService userAccountService = new UserAccountServiceImpl(repository, client, firebaseAuth);
+    UserAccountService userAccountService = newUserAccountService();
     assertTrue(userAccountService.checkEmailAvailability("john@gmail.com"));
   }
 
@@ -157,109 +282,250 @@ class UserAccountServiceImplTest {
   @DisplayName("Should return false if email does not exist in database")
   void Should_return_false_if_email_does_not_exist() {
     when(repository.existsUserAccountByUsername("john@gmail.com")).thenReturn(false);
-    UserAccountService userAccountService =
-        new UserAccountServiceImpl(repository, client, firebaseAuth);
+    UserAccountService userAccountService = newUserAccountService();
     assertFalse(userAccountService.checkUsernameAvailability("john@gmail.com"));
   }
 
   @Test
   @DisplayName("Should update email if the user exists in database")
-  void Should_update_email_if_user_exists() throws FirebaseAuthException {
-    UserAccount testUser = new UserAccount(
-            "1",
-            "johndoe@gmail.com",
-            "johndoe",
-            "John",
-            "Doe",
-            "2 Waverly Ave",
-            "New Jersey",
-            "NJ",
-            "USA",
-            "10000",
-            "online",
-            OffsetDateTime.now(),
-            "000-000-0000",
-            "url");
-
-    UserAccount testUpdatedUser = new UserAccount(
-            "1",
-            "john@gmail.com",
-            "johndoe",
-            "John",
-            "Doe",
-            "2 Waverly Ave",
-            "New Jersey",
-            "NJ",
-            "USA",
-            "10000",
-            "online",
-            OffsetDateTime.now(),
-            "000-000-0000",
-            "url");
-
-    when(repository.existsUserAccountByEmail("john@gmail.com")).thenReturn(false);
-    when(repository.findById("1")).thenReturn(Optional.of(testUser));
-    when(repository.save(testUpdatedUser)).thenReturn(testUpdatedUser);
-
-    UpdateRequest request = mock(UpdateRequest.class);
-    when(firebaseAuth.updateUser(request)).thenReturn(null);
-
-    UserAccountService userAccountService = new UserAccountServiceImpl(repository, client, firebaseAuth);
-    ResponseEntity<UserAccount> updatedUser = null;
-
-    try {
-      updatedUser = userAccountService.updateEmail("john@gmail.com", "1", request);
-    } catch (FirebaseAuthException e) {
-      fail(e);
-    }
+  void Should_update_email_if_user_exists() {
+    UserAccount testUpdatedUser = UserAccount.builder()
+        .uid("1")
+        .email("john@gmail.com")
+        .username("johndoe")
+        .firstName("John")
+        .lastName("Doe")
+        .address("2 Waverly Ave")
+        .city("New Jersey")
+        .state("NJ")
+        .country("USA")
+        .zipCode("10000")
+        .status("online")
+        .lastActivity(OffsetDateTime.now())
+        .phoneNumber("000-000-0000")
+        .photoUrl("url")
+        .build();
+
+    when(repository.updateEmail("1", "john@gmail.com")).thenReturn(Optional.of(testUpdatedUser));
+
+    UserAccountService userAccountService = newUserAccountService();
+    ResponseEntity<UserAccount> updatedUser = userAccountService.updateEmail("john@gmail.com", "1");
+
     assertEquals(updatedUser.getBody(), testUpdatedUser);
+    verify(firebaseSyncQueue).enqueueEmailUpdate("1", "john@gmail.com");
   }
 
   @Test
   @DisplayName("Should update username when user exists in database and username not taken")
   void Should_update_username_if_user_exists_and_username_is_available() {
-    UserAccount testUser = new UserAccount(
-            "1",
-            "johndoe@gmail.com",
-            "johndoe",
-            "John",
-            "Doe",
-            "2 Waverly Ave",
-            "New Jersey",
-            "NJ",
-            "USA",
-            "10000",
-            "online",
-            OffsetDateTime.now(),
-            "000-000-0000",
-            "url");
-
-    UserAccount testUpdatedUser = new UserAccount(
-            "1",
-            "johndoe@gmail.com",
-            "john",
-            "John",
-            "Doe",
-            "2 Waverly Ave",
-            "New Jersey",
-            "NJ",
-            "USA",
-            "10000",
-            "online",
-            OffsetDateTime.now(),
-            "000-000-0000",
-            "url");
+    UserAccount testUpdatedUser = UserAccount.builder()
+        .uid("1")
+        .email("johndoe@gmail.com")
+        .username("john")
+        .firstName("John")
+        .lastName("Doe")
+        .address("2 Waverly Ave")
+        .city("New Jersey")
+        .state("NJ")
+        .country("USA")
+        .zipCode("10000")
+        .status("online")
+        .lastActivity(OffsetDateTime.now())
+        .phoneNumber("000-000-0000")
+        .photoUrl("url")
+        .build();
 
-    when(repository.existsUserAccountByUsername("john")).thenReturn(false);
-    when(repository.findById("1")).thenReturn(Optional.of(testUser));
-    when(repository.save(testUpdatedUser)).thenReturn(testUpdatedUser);
+    when(repository.updateUsername("1", "john")).thenReturn(Optional.of(testUpdatedUser));
 
-    UserAccountService userAccountService = new UserAccountServiceImpl(repository, client, firebaseAuth);
+    UserAccountService userAccountService = newUserAccountService();
     ResponseEntity<UserAccount> updatedUser = userAccountService.updateUsername("john", "1");
 
     assertEquals(updatedUser.getBody(), testUpdatedUser);
+    verify(outboxWriter).record(OutboxEventType.USERNAME_CHANGED, testUpdatedUser);
+  }
+
+  @Test
+  @DisplayName("Should report taken names in one batch and suggest free alternatives")
+  void Should_report_taken_names_and_suggest_alternatives() {
+    when(repository.findExistingUsernames(anyCollection()))
+        .thenAnswer(invocation -> {
+          Collection<String> candidates = invocation.getArgument(0);
+          return candidates.contains("john") ? List.of("john") : List.of();
+        });
+    when(repository.findExistingEmails(anyCollection())).thenReturn(List.of());
+    AvailabilityRequest request = new AvailabilityRequest();
+    request.setUsernames(List.of("john", "jane"));
+    request.setEmails(List.of("jane@gmail.com"));
+    request.setSuggestions(3);
+
+    AvailabilityResponse response = newUserAccountService().checkAvailability(request);
+
+    assertEquals(List.of("john"), response.getTakenUsernames());
+    assertTrue(response.getTakenEmails().isEmpty());
+    assertEquals(3, response.getSuggestedUsernames().get("john").size());
+    assertTrue(response.getSuggestedUsernames().get("john").stream().allMatch(name -> name.startsWith("john")));
+  }
+
+  @Test
+  @DisplayName("Should check the suggestions for every taken name with a single query")
+  void Should_batch_suggestion_lookups() {
+    when(repository.findExistingUsernames(anyCollection()))
+        .thenAnswer(invocation -> {
+          Collection<String> candidates = invocation.getArgument(0);
+          return candidates.stream().filter(Set.of("john", "jane")::contains).collect(Collectors.toList());
+        });
+    AvailabilityRequest request = new AvailabilityRequest();
+    request.setUsernames(List.of("john", "jane"));
+    request.setSuggestions(3);
+
+    AvailabilityResponse response = newUserAccountService().checkAvailability(request);
+
+    assertEquals(3, response.getSuggestedUsernames().get("john").size());
+    assertEquals(3, response.getSuggestedUsernames().get("jane").size());
+    verify(repository, times(2)).findExistingUsernames(anyCollection());
+  }
+
+  @Test
+  @DisplayName("Should treat missing username and email lists as empty")
+  void Should_accept_null_availability_lists() {
+    AvailabilityRequest request = new AvailabilityRequest();
+    request.setUsernames(null);
+    request.setEmails(null);
+
+    AvailabilityResponse response = newUserAccountService().checkAvailability(request);
+
+    assertTrue(response.getTakenUsernames().isEmpty());
+    assertTrue(response.getTakenEmails().isEmpty());
   }
-}
 
+  @Test
+  @DisplayName("Should search usernames with an escaped, lower-cased contains pattern")
+  void Should_search_with_escaped_contains_pattern() {
+    when(repository.searchContacts("%jo\\_hn%", "", PageRequest.of(0, 21))).thenReturn(List.of(new ContactDTO()));
+    Slice<ContactDTO> contacts = newUserAccountService().findContacts("Jo_hn", null, 20, "1");
+    assertEquals(1, contacts.getNumberOfElements());
+    assertFalse(contacts.hasNext());
+  }
+
+  @Test
+  @DisplayName("Should show the live presence of a contact in search results")
+  void Should_overlay_live_presence_on_search_results() {
+    ContactDTO contact = new ContactDTO();
+    contact.setId("2");
+    contact.setStatus("offline");
+    when(repository.searchContacts("%", "", PageRequest.of(0, 21))).thenReturn(List.of(contact));
+    UserAccountService userAccountService = newUserAccountService();
+
+    userAccountService.updatePresence(PresenceStatus.ONLINE, "2");
+    Slice<ContactDTO> contacts = userAccountService.findContacts(null, null, 20, "1");
 
+    assertEquals("online", contacts.getContent().get(0).getStatus());
+  }
 
+  @Test
+  @DisplayName("Should seek past the cursor and report a next slice without counting rows")
+  void Should_seek_past_cursor_and_report_next_slice() {
+    when(repository.searchContacts("%", "john", PageRequest.of(0, 3)))
+        .thenReturn(List.of(new ContactDTO(), new ContactDTO(), new ContactDTO()));
+    Slice<ContactDTO> contacts = newUserAccountService().findContacts(null, "john", 2, "1");
+    assertEquals(2, contacts.getNumberOfElements());
+    assertTrue(contacts.hasNext());
+  }
+
+  @Test
+  @DisplayName("Should look up only uncached uids and keep the request order")
+  void Should_batch_lookup_cache_misses_in_request_order() {
+    cacheManager.getCache(CacheConfig.USER_ACCOUNTS).put("2", UserAccount.builder().uid("2").username("jane").build());
+    when(repository.findAllById(Set.of("1", "3")))
+        .thenReturn(List.of(UserAccount.builder().uid("1").username("john").build()));
+
+    BatchLookupResponse response = newUserAccountService().findContactsByUid(List.of("3", "2", "1"));
+
+    assertEquals(List.of("2", "1"), response.getContacts().stream().map(ContactDTO::getId).collect(Collectors.toList()));
+    assertEquals(List.of("3"), response.getMissingUids());
+    assertNotNull(cacheManager.getCache(CacheConfig.USER_ACCOUNTS).get("1"));
+  }
+
+  @Test
+  @DisplayName("Should reject a batch lookup with a null uid")
+  void Should_reject_batch_lookup_with_null_uid() {
+    UserAccountService userAccountService = newUserAccountService();
+
+    assertThrows(InvalidUidsException.class, () -> userAccountService.findContactsByUid(Arrays.asList("1", null)));
+    verifyNoInteractions(repository);
+  }
+
+  @Test
+  @DisplayName("Should merge updates and tombstones in cursor order and resume after the last change")
+  void Should_merge_changes_and_tombstones_in_cursor_order() {
+    UserAccount john = UserAccount.builder().uid("1").username("john").changeXid(101L).build();
+    UserAccount jane = UserAccount.builder().uid("2").username("jane").changeXid(103L).build();
+    AccountTombstone tombstone = new AccountTombstone("3", OffsetDateTime.parse("2026-01-01T00:00:00Z"));
+    tombstone.setChangeXid(102L);
+    when(repository.findSettledXid()).thenReturn(200L);
+    when(repository.findChangedSince(100L, "0", 200L, PageRequest.of(0, 3))).thenReturn(List.of(john, jane));
+    when(tombstoneRepository.findDeletedSince(100L, "0", 200L, PageRequest.of(0, 3))).thenReturn(List.of(tombstone));
+
+    ChangesResponse response = newUserAccountService().findChanges(new ChangeCursor(100L, "0"), 2);
+
+    assertEquals(List.of("1", "3"), response.getChanges().stream().map(AccountChange::getUid).collect(Collectors.toList()));
+    assertTrue(response.getChanges().get(1).isDeleted());
+    assertTrue(response.isHasMore());
+    ChangeCursor next = ChangeCursor.decode(response.getNextCursor());
+    assertEquals(102L, next.getChangeXid());
+    assertEquals("3", next.getUid());
+  }
+
+  @Test
+  @DisplayName("Should order changes of one transaction by uid bytes, not by a linguistic collation")
+  void Should_order_changes_of_one_transaction_bytewise() {
+    UserAccount upper = UserAccount.builder().uid("B1").username("bob").changeXid(101L).build();
+    UserAccount underscore = UserAccount.builder().uid("_x").username("x").changeXid(101L).build();
+    AccountTombstone lower = new AccountTombstone("a1", OffsetDateTime.parse("2026-01-01T00:00:00Z"));
+    lower.setChangeXid(101L);
+    when(repository.findSettledXid()).thenReturn(200L);
+    when(repository.findChangedSince(100L, "", 200L, PageRequest.of(0, 3))).thenReturn(List.of(upper, underscore));
+    when(tombstoneRepository.findDeletedSince(100L, "", 200L, PageRequest.of(0, 3))).thenReturn(List.of(lower));
+
+    ChangesResponse response = newUserAccountService().findChanges(new ChangeCursor(100L, ""), 2);
+
+    assertEquals(List.of("B1", "_x"), response.getChanges().stream().map(AccountChange::getUid).collect(Collectors.toList()));
+    assertEquals("_x", ChangeCursor.decode(response.getNextCursor()).getUid());
+  }
+
+  @Test
+  @DisplayName("Should mark the account deleted, leave a tombstone and hide it from lookups")
+  void Should_soft_delete_user_account() {
+    UserAccount deleted =
+        UserAccount.builder().uid("1").username("john").deletedAt(OffsetDateTime.now()).build();
+    when(repository.markDeleted("1")).thenReturn(Optional.of(deleted));
+    when(repository.findById("1")).thenReturn(Optional.of(deleted));
+    UserAccountService userAccountService = newUserAccountService();
+
+    ResponseEntity<UserAccount> response = userAccountService.deleteUserAccount("1");
+
+    assertEquals(204, response.getStatusCodeValue());
+    verify(tombstoneRepository).save(any(AccountTombstone.class));
+    verify(outboxWriter).record(OutboxEventType.ACCOUNT_DELETED, deleted);
+    assertThrows(UserAccountNotFoundException.class, () -> userAccountService.findUserAccount("1"));
+  }
+
+  @Test
+  @DisplayName("Should store the photo again when it was purged between the upload and the update")
+  void Should_store_photo_again_when_purged_after_upload() throws IOException {
+    MockMultipartFile photo = new MockMultipartFile("file", "me.png", "image/png", new byte[] {1});
+    UserAccount pending = UserAccount.builder().uid("1").photoKey("photos/sha256/ab").build();
+    when(profilePhotoUploader.upload(photo)).thenReturn("photos/sha256/ab");
+    when(profilePhotoUploader.isOriginalStored("photos/sha256/ab")).thenReturn(false, true);
+    when(repository.updatePhotoPending("1", "photos/sha256/ab")).thenReturn(Optional.of(pending));
+    when(profilePhotoProcessor.submit("1", "photos/sha256/ab")).thenReturn(PhotoStatus.PENDING);
+
+    ResponseEntity<UserAccount> response = newUserAccountService().updateProfilePhoto(photo, "1");
+
+    assertEquals(202, response.getStatusCodeValue());
+    verify(profilePhotoUploader).forget("photos/sha256/ab");
+    verify(profilePhotoUploader, times(2)).upload(photo);
+    verify(repository, times(2)).lockPhotoKey("photos/sha256/ab");
+    verify(repository, times(1)).updatePhotoPending("1", "photos/sha256/ab");
+  }
+}
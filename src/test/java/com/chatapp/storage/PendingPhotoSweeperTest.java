@@ -0,0 +1,52 @@
+package com.chatapp.storage;
+
+import com.chatapp.model.UserAccount;
+import com.chatapp.repository.UserAccountRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingPhotoSweeperTest {
+
+  @Mock UserAccountRepository repository;
+  @Mock ProfilePhotoProcessor profilePhotoProcessor;
+
+  @Test
+  @DisplayName("Should settle every photo pending for longer than the timeout, even after one fails")
+  void Should_settle_stale_pending_photos() {
+    when(repository.findPhotoPendingBefore(any(), eq(PageRequest.of(0, 10)))).thenReturn(List.of(
+        UserAccount.builder().uid("1").photoKey("photos/sha256/ab").build(),
+        UserAccount.builder().uid("2").photoKey("photos/sha256/cd").build()));
+    doThrow(new IllegalStateException("unavailable")).when(profilePhotoProcessor).recover("1", "photos/sha256/ab");
+
+    newSweeper().sweep();
+
+    verify(profilePhotoProcessor).recover("2", "photos/sha256/cd");
+  }
+
+  @Test
+  @DisplayName("Should wait for the next run when the pending photos cannot be loaded")
+  void Should_skip_run_when_database_is_unavailable() {
+    when(repository.findPhotoPendingBefore(any(), any())).thenThrow(new QueryTimeoutException("timeout"));
+
+    newSweeper().sweep();
+
+    verifyNoInteractions(profilePhotoProcessor);
+  }
+
+  private PendingPhotoSweeper newSweeper() {
+    return new PendingPhotoSweeper(repository, profilePhotoProcessor, Duration.ofMinutes(15), 10);
+  }
+}
@@ -0,0 +1,110 @@
+package com.chatapp.storage;
+
+import com.chatapp.model.PhotoStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ProfilePhotoProcessorTest {
+
+  private static final String PHOTO_KEY = "photos/uid/key";
+
+  @Mock ApplicationEventPublisher eventPublisher;
+
+  @TempDir Path storageRoot;
+
+  private ProfilePhotoProcessor processor;
+
+  @AfterEach
+  void shutdown() {
+    if (processor != null) {
+      processor.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Should write every square variant and report them ready")
+  void Should_write_square_variants() throws IOException {
+    Path original = storageRoot.resolve(ProfilePhotoProcessor.originalObjectName(PHOTO_KEY));
+    Files.createDirectories(original.getParent());
+    ImageIO.write(new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+    processor = newProcessor(40_000_000);
+
+    processor.process("uid", PHOTO_KEY);
+
+    for (int size : ProfilePhotoProcessor.SIZES) {
+      BufferedImage variant =
+          ImageIO.read(storageRoot.resolve(ProfilePhotoProcessor.variantObjectName(PHOTO_KEY, size)).toFile());
+      assertEquals(size, variant.getWidth());
+      assertEquals(size, variant.getHeight());
+    }
+    ProfilePhotoProcessedEvent event = publishedEvent();
+    assertEquals(PhotoStatus.READY, event.getStatus());
+    assertEquals("http://localhost/storage/photos/uid/key/512.jpg", event.getPhotoUrl());
+    assertEquals("http://localhost/storage/photos/uid/key/48.jpg", event.getAvatarUrl());
+  }
+
+  @Test
+  @DisplayName("Should report images above the pixel limit as failed without decoding them")
+  void Should_fail_images_above_pixel_limit() throws IOException {
+    Path original = storageRoot.resolve(ProfilePhotoProcessor.originalObjectName(PHOTO_KEY));
+    Files.createDirectories(original.getParent());
+    ImageIO.write(new BufferedImage(600, 600, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+    processor = newProcessor(100_000);
+
+    processor.process("uid", PHOTO_KEY);
+
+    assertEquals(PhotoStatus.FAILED, publishedEvent().getStatus());
+    assertFalse(Files.exists(storageRoot.resolve(ProfilePhotoProcessor.variantObjectName(PHOTO_KEY, 48))));
+  }
+
+  @Test
+  @DisplayName("Should report a stuck photo ready when its variants were already written")
+  void Should_recover_finished_photo_as_ready() throws IOException {
+    Path variant = storageRoot.resolve(ProfilePhotoProcessor.variantObjectName(PHOTO_KEY, 512));
+    Files.createDirectories(variant.getParent());
+    Files.write(variant, new byte[] {1});
+    processor = newProcessor(40_000_000);
+
+    processor.recover("uid", PHOTO_KEY);
+
+    assertEquals(PhotoStatus.READY, publishedEvent().getStatus());
+  }
+
+  @Test
+  @DisplayName("Should report a stuck photo failed when its processing never finished")
+  void Should_recover_unfinished_photo_as_failed() {
+    processor = newProcessor(40_000_000);
+
+    processor.recover("uid", PHOTO_KEY);
+
+    assertEquals(PhotoStatus.FAILED, publishedEvent().getStatus());
+  }
+
+  private ProfilePhotoProcessor newProcessor(long maxPixels) {
+    LocalPhotoStorage storage = new LocalPhotoStorage(storageRoot, "http://localhost/storage");
+    return new ProfilePhotoProcessor(storage, eventPublisher, 1, 1, maxPixels);
+  }
+
+  private ProfilePhotoProcessedEvent publishedEvent() {
+    ArgumentCaptor<ProfilePhotoProcessedEvent> event = ArgumentCaptor.forClass(ProfilePhotoProcessedEvent.class);
+    verify(eventPublisher).publishEvent(event.capture());
+    return event.getValue();
+  }
+}
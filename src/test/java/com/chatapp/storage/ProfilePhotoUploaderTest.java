@@ -0,0 +1,139 @@
+package com.chatapp.storage;
+
+import com.chatapp.cache.InMemoryCacheInvalidationBus;
+import com.chatapp.exception.InvalidPhotoException;
+import com.chatapp.exception.TooManyUploadsException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilePhotoUploaderTest {
+
+  private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+
+  @TempDir Path storageRoot;
+
+  private final InMemoryCacheInvalidationBus invalidationBus = new InMemoryCacheInvalidationBus();
+
+  @Test
+  @DisplayName("Should stream a photo larger than the buffer into storage under its content hash")
+  void Should_stream_photo_into_storage() throws IOException, NoSuchAlgorithmException {
+    byte[] content = png(3 * 1024 + 17);
+    ProfilePhotoUploader uploader = newUploader(DataSize.ofKilobytes(64), 1);
+
+    String photoKey = uploader.upload(new MockMultipartFile("file", "me.png", "image/png", content));
+
+    assertEquals("photos/sha256/" + sha256Hex(content), photoKey);
+    assertArrayEquals(
+        content, Files.readAllBytes(storageRoot.resolve(ProfilePhotoProcessor.originalObjectName(photoKey))));
+  }
+
+  @Test
+  @DisplayName("Should not write identical content twice")
+  void Should_deduplicate_identical_content() throws IOException {
+    byte[] content = png(2048);
+    ProfilePhotoUploader uploader = newUploader(DataSize.ofKilobytes(64), 1);
+    String photoKey = uploader.upload(new MockMultipartFile("file", "me.png", "image/png", content));
+    Path original = storageRoot.resolve(ProfilePhotoProcessor.originalObjectName(photoKey));
+    Files.delete(original);
+
+    String secondPhotoKey = uploader.upload(new MockMultipartFile("file", "other.png", "image/png", content));
+
+    assertEquals(photoKey, secondPhotoKey);
+    assertFalse(Files.exists(original));
+  }
+
+  @Test
+  @DisplayName("Should store the content again once another node forgot it")
+  void Should_store_again_after_forget_on_another_node() throws IOException {
+    byte[] content = png(2048);
+    ProfilePhotoUploader uploader = newUploader(DataSize.ofKilobytes(64), 1);
+    String photoKey = uploader.upload(new MockMultipartFile("file", "me.png", "image/png", content));
+    Path original = storageRoot.resolve(ProfilePhotoProcessor.originalObjectName(photoKey));
+    Files.delete(original);
+
+    newUploader(DataSize.ofKilobytes(64), 1).forget(photoKey);
+    uploader.upload(new MockMultipartFile("file", "me.png", "image/png", content));
+
+    assertTrue(uploader.isOriginalStored(photoKey));
+    assertArrayEquals(content, Files.readAllBytes(original));
+  }
+
+  @Test
+  @DisplayName("Should find content stored before the known hashes were populated")
+  void Should_skip_content_already_in_storage() throws IOException {
+    byte[] content = png(2048);
+    String photoKey = newUploader(DataSize.ofKilobytes(64), 1)
+        .upload(new MockMultipartFile("file", "me.png", "image/png", content));
+    Path original = storageRoot.resolve(ProfilePhotoProcessor.originalObjectName(photoKey));
+    Files.setLastModifiedTime(original, FileTime.fromMillis(0));
+
+    newUploader(DataSize.ofKilobytes(64), 1).upload(new MockMultipartFile("file", "me.png", "image/png", content));
+
+    assertEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(original));
+  }
+
+  @Test
+  @DisplayName("Should reject files that are not images before writing anything")
+  void Should_reject_non_images() {
+    byte[] content = "definitely not an image".getBytes();
+    ProfilePhotoUploader uploader = newUploader(DataSize.ofMegabytes(1), 1);
+
+    assertThrows(
+        InvalidPhotoException.class,
+        () -> uploader.upload(new MockMultipartFile("file", "me.png", "image/png", content)));
+    assertFalse(Files.exists(storageRoot.resolve("photos")));
+  }
+
+  @Test
+  @DisplayName("Should reject files larger than the configured maximum")
+  void Should_reject_large_files() {
+    byte[] content = png(2048);
+    ProfilePhotoUploader uploader = newUploader(DataSize.ofKilobytes(1), 1);
+
+    assertThrows(
+        InvalidPhotoException.class,
+        () -> uploader.upload(new MockMultipartFile("file", "me.png", "image/png", content)));
+  }
+
+  @Test
+  @DisplayName("Should refuse uploads when every buffer is in use")
+  void Should_refuse_uploads_when_no_buffer_is_free() {
+    ProfilePhotoUploader uploader = newUploader(DataSize.ofMegabytes(1), 0);
+
+    assertThrows(
+        TooManyUploadsException.class,
+        () -> uploader.upload(new MockMultipartFile("file", "me.png", "image/png", png(64))));
+  }
+
+  private ProfilePhotoUploader newUploader(DataSize maxSize, int maxConcurrentUploads) {
+    LocalPhotoStorage storage = new LocalPhotoStorage(storageRoot, "http://localhost/storage");
+    return new ProfilePhotoUploader(
+        storage, invalidationBus, maxSize, maxConcurrentUploads, DataSize.ofBytes(1024), 100, Duration.ofMinutes(10));
+  }
+
+  private static String sha256Hex(byte[] content) throws NoSuchAlgorithmException {
+    return String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(content)));
+  }
+
+  private static byte[] png(int length) {
+    byte[] content = new byte[length];
+    Arrays.fill(content, (byte) 7);
+    System.arraycopy(PNG_SIGNATURE, 0, content, 0, PNG_SIGNATURE.length);
+    return content;
+  }
+}